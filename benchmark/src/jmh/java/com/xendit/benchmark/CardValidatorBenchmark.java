@@ -0,0 +1,44 @@
+package com.xendit.benchmark;
+
+import com.xendit.utils.CardValidator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+
+/**
+ * Throughput and allocation of the CardValidator entry points called on every keystroke
+ */
+@State(Scope.Benchmark)
+public class CardValidatorBenchmark {
+
+    @Param({"4012111111111111", "4111 1111 1111 1111", "378282246310005", "6011000990139424", "4000000000000001"})
+    public String cardNumber;
+
+    private final String expirationMonth = "12";
+    private final String expirationYear = Integer.toString(Calendar.getInstance().get(Calendar.YEAR) + 2);
+    private final String cvn = "123";
+
+    @Benchmark
+    public boolean isCardNumberValid() {
+        return CardValidator.isCardNumberValid(cardNumber);
+    }
+
+    @Benchmark
+    public CardValidator.CardType getCardType() {
+        return CardValidator.getCardType(cardNumber);
+    }
+
+    @Benchmark
+    public boolean isExpiryValid() {
+        return CardValidator.isExpiryValid(expirationMonth, expirationYear);
+    }
+
+    @Benchmark
+    public boolean isCvnValidForCardType() {
+        return CardValidator.isCvnValidForCardType(cvn, cardNumber);
+    }
+}
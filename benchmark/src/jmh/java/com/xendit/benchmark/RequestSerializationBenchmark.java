@@ -0,0 +1,86 @@
+package com.xendit.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.xendit.network.JsonBodyWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Builds the request bodies of the flex tokenize and /credit_card_tokens calls. The tree
+ * benchmarks serialize a JsonObject with a per-request Gson and encode it as UTF-8 as the SDK used
+ * to, the streamed ones write the fields straight to bytes with {@link JsonBodyWriter}.
+ */
+@State(Scope.Benchmark)
+public class RequestSerializationBenchmark {
+
+    private static final String PROTOCOL_CHARSET = "utf-8";
+
+    @Benchmark
+    public byte[] tokenizeCreditCardBody() throws UnsupportedEncodingException {
+        JsonObject cardInfoJson = new JsonObject();
+        cardInfoJson.addProperty("cardNumber", "4000000000000002");
+        cardInfoJson.addProperty("cardExpirationMonth", "12");
+        cardInfoJson.addProperty("cardExpirationYear", "2030");
+        cardInfoJson.addProperty("cardType", "001");
+
+        JsonObject jsonBody = new JsonObject();
+        jsonBody.addProperty("keyId", "08wNmD5sfVHo2TKL1i9bbBvlYqXkNfZm");
+        jsonBody.add("cardInfo", cardInfoJson);
+
+        return newGson().toJson(jsonBody).getBytes(PROTOCOL_CHARSET);
+    }
+
+    @Benchmark
+    public byte[] createTokenBody() throws UnsupportedEncodingException {
+        JsonObject jsonBody = new JsonObject();
+        jsonBody.addProperty("is_authentication_bundled", "true");
+        jsonBody.addProperty("should_authenticate", "true");
+        jsonBody.addProperty("credit_card_token", "4978393710786547103010");
+        jsonBody.addProperty("card_cvn", "123");
+        jsonBody.addProperty("amount", "75000");
+
+        return newGson().toJson(jsonBody).getBytes(PROTOCOL_CHARSET);
+    }
+
+    @Benchmark
+    public byte[] tokenizeCreditCardBodyStreamed() {
+        return JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("keyId").value("08wNmD5sfVHo2TKL1i9bbBvlYqXkNfZm");
+                writer.name("cardInfo").beginObject();
+                writer.name("cardNumber").value("4000000000000002");
+                writer.name("cardExpirationMonth").value("12");
+                writer.name("cardExpirationYear").value("2030");
+                writer.name("cardType").value("001");
+                writer.endObject();
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] createTokenBodyStreamed() {
+        return JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("is_authentication_bundled").value("true");
+                writer.name("should_authenticate").value("true");
+                writer.name("credit_card_token").value("4978393710786547103010");
+                writer.name("card_cvn").value("123");
+                writer.name("amount").value("75000");
+            }
+        });
+    }
+
+    private static Gson newGson() {
+        return new GsonBuilder().create();
+    }
+}
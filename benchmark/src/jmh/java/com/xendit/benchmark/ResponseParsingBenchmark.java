@@ -0,0 +1,117 @@
+package com.xendit.benchmark;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.xendit.Models.Authentication;
+import com.xendit.Models.ErrorResponse;
+import com.xendit.Models.ModelGson;
+import com.xendit.Models.TokenConfiguration;
+import com.xendit.Models.TokenCreditCard;
+import com.xendit.utils.ByteArrayReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Type;
+
+/**
+ * Parses the responses of the payment path. The reflective benchmarks copy the bytes into a
+ * String and build a Gson per request as the SDK used to, the shared ones decode the bytes while
+ * parsing them with the streaming TypeAdapters of {@link ModelGson}, as
+ * BaseRequest.parseNetworkResponse does now.
+ */
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+
+    private static final String CHARSET = "utf-8";
+
+    private final byte[] authenticationResponse = utf8("{"
+            + "\"id\":\"5b2a3d7c8b2e4a4e2f1c9a11\","
+            + "\"status\":\"IN_REVIEW\","
+            + "\"authentication_id\":\"5b2a3d7c8b2e4a4e2f1c9a12\","
+            + "\"payer_authentication_url\":\"https://api.xendit.co/credit_card_tokens/5b2a3d7c8b2e4a4e2f1c9a11/authentications/5b2a3d7c8b2e4a4e2f1c9a12/render\","
+            + "\"masked_card_number\":\"400000XXXXXX0002\"}");
+
+    private final byte[] tokenConfigurationResponse = utf8("{"
+            + "\"tokenization_auth_key_id\":\"08wNmD5sfVHo2TKL1i9bbBvlYqXkNfZm\","
+            + "\"flex_api_key\":\"SBzJMQ9rWDRgNbdKfLsEEBWw0OSHUAN2\","
+            + "\"flex_production_url\":\"https://flex.cybersource.com\","
+            + "\"flex_development_url\":\"https://testflex.cybersource.com\"}");
+
+    private final byte[] tokenCreditCardResponse = utf8("{"
+            + "\"keyId\":\"08wNmD5sfVHo2TKL1i9bbBvlYqXkNfZm\","
+            + "\"token\":\"4111111111111111\","
+            + "\"maskedPan\":\"411111XXXXXX1111\","
+            + "\"cardType\":\"001\","
+            + "\"timestamp\":1527142813964,"
+            + "\"signedFields\":\"token,cardType,maskedPan,timestamp\","
+            + "\"signature\":\"TcM8MqUtm3Sr9XW0UW9RdK8KbsYqz9l+0zsT4xUg9nM=\"}");
+
+    private final byte[] errorResponse = utf8("{"
+            + "\"error_code\":\"API_VALIDATION_ERROR\","
+            + "\"message\":\"Card number is invalid\"}");
+
+    @Benchmark
+    public Authentication parseAuthentication() throws UnsupportedEncodingException {
+        return parseReflective(authenticationResponse, Authentication.class);
+    }
+
+    @Benchmark
+    public Authentication parseAuthenticationShared() throws UnsupportedEncodingException {
+        return parseShared(authenticationResponse, Authentication.class);
+    }
+
+    @Benchmark
+    public TokenConfiguration parseTokenConfiguration() throws UnsupportedEncodingException {
+        return parseReflective(tokenConfigurationResponse, TokenConfiguration.class);
+    }
+
+    @Benchmark
+    public TokenConfiguration parseTokenConfigurationShared() throws UnsupportedEncodingException {
+        return parseShared(tokenConfigurationResponse, TokenConfiguration.class);
+    }
+
+    @Benchmark
+    public TokenCreditCard parseTokenCreditCard() throws UnsupportedEncodingException {
+        return parseReflective(tokenCreditCardResponse, TokenCreditCard.class);
+    }
+
+    @Benchmark
+    public TokenCreditCard parseTokenCreditCardShared() throws UnsupportedEncodingException {
+        return parseShared(tokenCreditCardResponse, TokenCreditCard.class);
+    }
+
+    @Benchmark
+    public ErrorResponse parseErrorResponse() throws UnsupportedEncodingException {
+        return parseReflective(errorResponse, ErrorResponse.class);
+    }
+
+    @Benchmark
+    public ErrorResponse parseErrorResponseShared() throws UnsupportedEncodingException {
+        return parseShared(errorResponse, ErrorResponse.class);
+    }
+
+    private static <T> T parseReflective(byte[] data, Type type) throws UnsupportedEncodingException {
+        String jsonString = new String(data, CHARSET);
+        JsonReader reader = new JsonReader(new StringReader(jsonString));
+        reader.setLenient(true);
+        return new GsonBuilder().create().fromJson(reader, type);
+    }
+
+    private static <T> T parseShared(byte[] data, Type type) throws UnsupportedEncodingException {
+        JsonReader reader = new JsonReader(new ByteArrayReader(data, CHARSET));
+        reader.setLenient(true);
+        return ModelGson.get().fromJson(reader, type);
+    }
+
+    private static byte[] utf8(String str) {
+        try {
+            return str.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
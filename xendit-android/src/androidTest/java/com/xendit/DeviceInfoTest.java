@@ -8,6 +8,9 @@ import android.util.Log;
 
 
 import com.xendit.DeviceInfo.AdInfo;
+import com.xendit.DeviceInfo.AdvertisingIdClient;
+import com.xendit.DeviceInfo.DeviceFingerprint;
+import com.xendit.DeviceInfo.DeviceFingerprintCollector;
 import com.xendit.DeviceInfo.DeviceInfo;
 import com.xendit.DeviceInfo.GPSLocation;
 import com.xendit.DeviceInfo.Model.DeviceLocation;
@@ -16,6 +19,13 @@ import com.xendit.utils.PermissionUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static android.support.test.InstrumentationRegistry.getTargetContext;
 import static com.google.common.truth.Truth.assertThat;
 
@@ -82,4 +92,42 @@ public class DeviceInfoTest {
             assertThat(cid).isAtLeast(0);
         }
     }
+
+    @Test
+    public void test_deviceFingerprint() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<DeviceFingerprint> collected = new AtomicReference<>();
+        DeviceFingerprintCollector collector = DeviceFingerprintCollector.getInstance(appContext);
+        collector.collect(new DeviceFingerprintCollector.Listener() {
+            @Override
+            public void onFingerprint(DeviceFingerprint fingerprint) {
+                collected.set(fingerprint);
+                latch.countDown();
+            }
+        });
+
+        assertThat(latch.await(15, TimeUnit.SECONDS)).isTrue();
+        DeviceFingerprint fingerprint = collected.get();
+        assertThat(fingerprint.getModel()).isEqualTo(DeviceInfo.getModel());
+        assertThat(fingerprint.getLanguage()).isEqualTo(DeviceInfo.getLanguage());
+        // served from the cache without collecting again
+        assertThat(collector.getSnapshot()).isSameAs(fingerprint);
+    }
+
+    @Test
+    public void test_advertisingIdClient_sharesOneRetrieval() throws InterruptedException {
+        Future<AdInfo> first = AdvertisingIdClient.getAdInfo(appContext, null);
+        Future<AdInfo> second = AdvertisingIdClient.getAdInfo(appContext, null);
+        assertThat(second).isSameAs(first);
+
+        try {
+            AdInfo adInfo = first.get(DeviceInfo.ADVERTISING_ID_TIMEOUT_MS * 2, TimeUnit.MILLISECONDS);
+            assertThat(AdvertisingIdClient.getCachedAdInfo()).isSameAs(adInfo);
+        } catch (ExecutionException e) {
+            // no Play Services on this device, the retrieval must still end
+            Log.e("DeviceInfoTest", "DeviceInfoTest: Advertising ID is not available " + e.getCause());
+        } catch (TimeoutException e) {
+            throw new AssertionError("Advertising ID retrieval did not end", e);
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package com.xendit;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class StartupTest {
+
+    private final static String TAG = "StartupTest";
+    private final static String PUBLISHABLE_KEY = "xnd_public_development_O4uGfOR3gbOunJU4frcaHmLCYNLy8oQuknDm+R1r9G3S/b2lBQR+gQ==";
+    private final static int WARM_UP_RUNS = 5;
+    private final static int MEASURED_RUNS = 51;
+
+    private Context appContext = InstrumentationRegistry.getTargetContext();
+
+    @Test
+    public void test_constructorReturnsInUnderAMillisecond() {
+        // the first runs pay for class loading
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            new Xendit(appContext, PUBLISHABLE_KEY);
+        }
+
+        long[] durations = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            new Xendit(appContext, PUBLISHABLE_KEY);
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+
+        long median = durations[MEASURED_RUNS / 2];
+        long p90 = durations[(int) Math.ceil(MEASURED_RUNS * 0.9) - 1];
+        long max = durations[MEASURED_RUNS - 1];
+        Log.i(TAG, String.format("Constructor: median %d us, p90 %d us, max %d us",
+                TimeUnit.NANOSECONDS.toMicros(median), TimeUnit.NANOSECONDS.toMicros(p90),
+                TimeUnit.NANOSECONDS.toMicros(max)));
+        // the tail matters on the main thread, not only the typical run
+        assertThat(median).isLessThan(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(p90).isLessThan(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
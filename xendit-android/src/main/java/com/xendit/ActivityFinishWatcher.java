@@ -0,0 +1,79 @@
+package com.xendit;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Runs a task once an activity finishes.
+ *
+ * The watcher stays registered on the application only until the activity is destroyed,
+ * finishing or not, so an activity recreated by a configuration change leaves nothing behind.
+ * The activity is referenced weakly.
+ */
+final class ActivityFinishWatcher implements Application.ActivityLifecycleCallbacks {
+
+    private final Application application;
+    private final WeakReference<Activity> activity;
+    private final Runnable onFinished;
+
+    private ActivityFinishWatcher(Application application, Activity activity, Runnable onFinished) {
+        this.application = application;
+        this.activity = new WeakReference<>(activity);
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * @param onFinished Run on the main thread when activity is destroyed because it finished,
+     *                   must not reference activity
+     */
+    static void watch(Activity activity, Runnable onFinished) {
+        Application application = activity.getApplication();
+        if (application != null) {
+            watch(application, activity, onFinished);
+        }
+    }
+
+    static void watch(Application application, Activity activity, Runnable onFinished) {
+        application.registerActivityLifecycleCallbacks(new ActivityFinishWatcher(application, activity, onFinished));
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity destroyed) {
+        Activity watched = activity.get();
+        if (watched != null && destroyed != watched) {
+            return;
+        }
+        application.unregisterActivityLifecycleCallbacks(this);
+        // a configuration change recreates the activity, its calls are still awaited
+        if (watched != null && watched.isFinishing()) {
+            onFinished.run();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+}
@@ -3,22 +3,21 @@ package com.xendit;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Bundle;
 
-import com.google.gson.Gson;
 import com.xendit.Logger.Logger;
 import com.xendit.Models.Authentication;
+import com.xendit.Models.ErrorResponse;
+import com.xendit.Models.ModelGson;
 import com.xendit.Models.XenditError;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import static com.xendit.Xendit.mLogger;
 
 /**
  * Created by gonzalez on 7/26/17.
  */
 
-public class AuthenticationBroadcastReceiver extends BroadcastReceiver {
+public class AuthenticationBroadcastReceiver extends BroadcastReceiver implements AuthenticationResults.Receiver {
 
     private final String TAG = "AuthenticationBroadcastReceiver";
     private AuthenticationCallback authenticationCallback;
@@ -30,25 +29,29 @@ public class AuthenticationBroadcastReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
         mLogger.log(Logger.Level.INFO, "AuthenticationBroadcastReceiver onReceive");
+        Bundle extras = intent.getExtras();
+        onResult(context, extras != null ? extras.getString(XenditActivity.MESSAGE_KEY) : null);
+
+        context.unregisterReceiver(this);
+    }
+
+    @Override
+    public void onResult(Context context, String message) {
         try {
-            String message = intent.getExtras().getString(XenditActivity.MESSAGE_KEY);
             if (!message.isEmpty() && message.equals(context.getString(R.string.create_token_error_validation))) {
                 authenticationCallback.onError(new XenditError(context.getString(R.string.create_token_error_validation)));
             } else if (message.equals(context.getString(R.string.tokenization_error))) {
                 authenticationCallback.onError(new XenditError("AUTHENTICATION_ERROR", context.getString(R.string.tokenization_error)));
             } else {
-                Gson gson = new Gson();
-                Authentication authentication = gson.fromJson(message, Authentication.class);
+                Authentication authentication = ModelGson.get().fromJson(message, Authentication.class);
 
                 if (authentication.getStatus().equals("VERIFIED")) {
                     authenticationCallback.onSuccess(authentication);
                 } else {
-                    try {
-                        JSONObject errorJson = new JSONObject(message);
-                        String errorMessage = errorJson.getString("failure_reason");
-                        authenticationCallback.onError(new XenditError(errorMessage, authentication));
-                    } catch (JSONException e) {
-                        e.printStackTrace();
+                    ErrorResponse error = ModelGson.get().fromJson(message, ErrorResponse.class);
+                    if (error.getFailureReason() != null) {
+                        authenticationCallback.onError(new XenditError(error.getFailureReason(), authentication));
+                    } else {
                         authenticationCallback.onError(new XenditError("SERVER_ERROR", context.getString(R.string.authentication_error)));
                     }
 
@@ -60,8 +63,5 @@ public class AuthenticationBroadcastReceiver extends BroadcastReceiver {
             authenticationCallback.onError(new XenditError("SERVER_ERROR", e.getMessage()));
 
         }
-
-
-        context.unregisterReceiver(this);
     }
 }
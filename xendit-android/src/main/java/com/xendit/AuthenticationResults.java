@@ -0,0 +1,96 @@
+package com.xendit;
+
+import android.content.Context;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes the result of a 3DS screen to the call that opened it, in process and by id.
+ *
+ * Every launch of {@link XenditActivity} registers its receiver under a new id carried by the
+ * launch intent. The receiver is held strongly only until the activity claims it, the activity
+ * then keeps it while it is shown, so a receiver whose screen is gone is garbage collected and
+ * never called into a destroyed caller.
+ */
+final class AuthenticationResults {
+
+    interface Receiver {
+        /**
+         * Called on the main thread with the message posted by the 3DS page
+         */
+        void onResult(Context context, String message);
+    }
+
+    private static final class Registration extends WeakReference<Receiver> {
+        final String id;
+
+        Registration(String id, Receiver receiver, ReferenceQueue<Receiver> queue) {
+            super(receiver, queue);
+            this.id = id;
+        }
+    }
+
+    private static final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    // launched, not yet claimed by their activity
+    private static final Map<String, Receiver> launching = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Receiver> collected = new ReferenceQueue<>();
+
+    private AuthenticationResults() {
+    }
+
+    /**
+     * @return The id to launch the 3DS screen with
+     */
+    static String register(Receiver receiver) {
+        purge();
+        String id = UUID.randomUUID().toString();
+        registrations.put(id, new Registration(id, receiver, collected));
+        launching.put(id, receiver);
+        return id;
+    }
+
+    /**
+     * Hands the receiver of id to the activity showing its 3DS screen, which keeps it from then on
+     *
+     * @return The receiver, or null if its call was cancelled or already has a result
+     */
+    static Receiver claim(String id) {
+        Receiver receiver = launching.remove(id);
+        if (receiver != null) {
+            return receiver;
+        }
+        Registration registration = registrations.get(id);
+        return registration != null ? registration.get() : null;
+    }
+
+    /**
+     * Calls the receiver of id once, later results for the same id are dropped
+     */
+    static void deliver(String id, Context context, String message) {
+        launching.remove(id);
+        Registration registration = registrations.remove(id);
+        Receiver receiver = registration != null ? registration.get() : null;
+        if (receiver != null) {
+            receiver.onResult(context, message);
+        }
+    }
+
+    /**
+     * Drops the receiver of id, e.g. once its call was cancelled
+     */
+    static void unregister(String id) {
+        launching.remove(id);
+        registrations.remove(id);
+    }
+
+    private static void purge() {
+        Registration registration;
+        while ((registration = (Registration) collected.poll()) != null) {
+            registrations.remove(registration.id);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.xendit;
+
+import com.xendit.Models.Token;
+import com.xendit.Models.XenditError;
+
+/**
+ * Receives the results of {@link Xendit#createMultipleUseTokens(java.util.List, BatchTokenCallback)}
+ * on the main thread, per card as they complete, then once for the whole batch
+ */
+public abstract class BatchTokenCallback {
+
+    /**
+     * @param index Position of the card in the list
+     */
+    public abstract void onSuccess(int index, Token token);
+
+    /**
+     * @param index Position of the card in the list, the other cards are not affected
+     */
+    public abstract void onError(int index, XenditError error);
+
+    /**
+     * Called after the result of the last card
+     *
+     * @param elapsedMillis Time from the call to the last result
+     */
+    public abstract void onComplete(int successCount, int errorCount, long elapsedMillis);
+}
@@ -0,0 +1,143 @@
+package com.xendit;
+
+import com.xendit.Models.Card;
+import com.xendit.Models.Token;
+import com.xendit.Models.XenditError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tokenizes a list of cards with at most maxConcurrency of them in flight. A card is started as
+ * soon as another one completes, and its result is handed to the callback right away. A card
+ * whose tokenizer throws fails with a TOKENIZATION_ERROR, and an exception thrown by the callback
+ * does not stall the batch.
+ */
+final class BatchTokenization {
+
+    interface Tokenizer {
+        void tokenize(Card card, TokenCallback callback);
+    }
+
+    private final List<Card> cards;
+    private final int maxConcurrency;
+    private final BatchTokenCallback callback;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final AtomicInteger errorCount = new AtomicInteger();
+    // dispatches requested, drained by a single thread so synchronous results do not recurse
+    private final AtomicInteger pendingDispatches = new AtomicInteger();
+    private volatile Tokenizer tokenizer;
+
+    BatchTokenization(List<Card> cards, int maxConcurrency, BatchTokenCallback callback) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency < 1");
+        }
+        this.cards = new ArrayList<>(cards);
+        this.maxConcurrency = maxConcurrency;
+        this.callback = callback;
+        remaining = new AtomicInteger(this.cards.size());
+    }
+
+    void start(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        if (cards.isEmpty()) {
+            complete();
+            return;
+        }
+        for (int i = 0; i < Math.min(maxConcurrency, cards.size()); i++) {
+            dispatchNext();
+        }
+    }
+
+    /**
+     * Fails every card, e.g. when the tokenization configuration could not be fetched
+     */
+    void fail(XenditError error) {
+        for (int i = 0; i < cards.size(); i++) {
+            errorCount.incrementAndGet();
+            callback.onError(i, error);
+        }
+        complete();
+    }
+
+    private void dispatchNext() {
+        if (pendingDispatches.getAndIncrement() != 0) {
+            return;
+        }
+        RuntimeException callbackException = null;
+        do {
+            int index = next.getAndIncrement();
+            if (index < cards.size()) {
+                try {
+                    tokenize(index);
+                } catch (RuntimeException e) {
+                    // thrown by the callback of a finished card, rethrown once the dispatches drained
+                    if (callbackException == null) {
+                        callbackException = e;
+                    }
+                }
+            }
+        } while (pendingDispatches.decrementAndGet() != 0);
+        if (callbackException != null) {
+            throw callbackException;
+        }
+    }
+
+    private void tokenize(final int index) {
+        // the card is finished exactly once, even if the tokenizer throws after handing a result
+        final AtomicBoolean done = new AtomicBoolean();
+        try {
+            tokenizer.tokenize(cards.get(index), new TokenCallback() {
+                @Override
+                public void onSuccess(Token token) {
+                    if (done.compareAndSet(false, true)) {
+                        try {
+                            callback.onSuccess(index, token);
+                        } finally {
+                            finished();
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(XenditError error) {
+                    if (done.compareAndSet(false, true)) {
+                        failed(index, error);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!done.compareAndSet(false, true)) {
+                throw e;
+            }
+            failed(index, new XenditError("TOKENIZATION_ERROR", e.getMessage()));
+        }
+    }
+
+    private void failed(int index, XenditError error) {
+        errorCount.incrementAndGet();
+        try {
+            callback.onError(index, error);
+        } finally {
+            finished();
+        }
+    }
+
+    private void finished() {
+        if (remaining.decrementAndGet() == 0) {
+            complete();
+        } else {
+            dispatchNext();
+        }
+    }
+
+    private void complete() {
+        int errors = errorCount.get();
+        callback.onComplete(cards.size() - errors, errors, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+}
@@ -0,0 +1,10 @@
+package com.xendit.DeviceInfo;
+
+/**
+ * Receives the result of {@link AdvertisingIdClient#getAdInfo}, on a background thread
+ */
+public abstract class AdInfoCallback {
+    public abstract void onSuccess(AdInfo adInfo);
+
+    public abstract void onError(Exception error);
+}
@@ -0,0 +1,136 @@
+package com.xendit.DeviceInfo;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Asynchronous, memoized access to the advertising ID.
+ *
+ * The advertising ID service is bound at most once at a time: concurrent callers share the same
+ * retrieval, and once it succeeded the result is kept for the lifetime of the process. A failed
+ * or timed out retrieval is not kept, the next call tries again. The service is waited for at
+ * most {@link DeviceInfo#ADVERTISING_ID_TIMEOUT_MS}, so no thread is parked indefinitely.
+ */
+public final class AdvertisingIdClient {
+
+    private static final AtomicReference<AdInfoTask> task = new AtomicReference<>();
+
+    private AdvertisingIdClient() {
+    }
+
+    /**
+     * Retrieves the advertising ID on a background thread
+     *
+     * @param context Context used to bind the advertising ID service
+     * @param callback Notified on a background thread once the ID is available, may be null
+     * @return A future of the advertising ID, its get() fails with the cause of the error
+     */
+    public static Future<AdInfo> getAdInfo(Context context, AdInfoCallback callback) {
+        AdInfoTask current = task.get();
+        if (current == null) {
+            final Context applicationContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            AdInfoTask created = new AdInfoTask(new Callable<AdInfo>() {
+                @Override
+                public AdInfo call() throws Exception {
+                    return DeviceInfo.getAdvertisingIdInfo(applicationContext);
+                }
+            });
+            if (task.compareAndSet(null, created)) {
+                Thread thread = new Thread(created, "xendit-adid");
+                thread.setDaemon(true);
+                thread.start();
+                current = created;
+            } else {
+                current = task.get();
+            }
+        }
+        if (callback != null) {
+            current.addCallback(callback);
+        }
+        return current;
+    }
+
+    /**
+     * @return The memoized advertising ID, or null if it was not retrieved yet
+     */
+    public static AdInfo getCachedAdInfo() {
+        AdInfoTask current = task.get();
+        if (current == null || !current.isDone()) {
+            return null;
+        }
+        try {
+            return current.get();
+        } catch (ExecutionException | InterruptedException | CancellationException e) {
+            return null;
+        }
+    }
+
+    private static final class AdInfoTask extends FutureTask<AdInfo> {
+
+        // guarded by this
+        private final List<AdInfoCallback> callbacks = new ArrayList<>();
+
+        AdInfoTask(Callable<AdInfo> callable) {
+            super(callable);
+        }
+
+        void addCallback(AdInfoCallback callback) {
+            synchronized (this) {
+                if (!isDone()) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            deliver(callback);
+        }
+
+        @Override
+        protected void done() {
+            if (!succeeded()) {
+                // let the next caller try again
+                task.compareAndSet(this, null);
+            }
+
+            List<AdInfoCallback> pending;
+            synchronized (this) {
+                pending = new ArrayList<>(callbacks);
+                callbacks.clear();
+            }
+            for (AdInfoCallback callback : pending) {
+                deliver(callback);
+            }
+        }
+
+        private boolean succeeded() {
+            try {
+                get();
+                return true;
+            } catch (ExecutionException | InterruptedException | CancellationException e) {
+                return false;
+            }
+        }
+
+        private void deliver(AdInfoCallback callback) {
+            AdInfo adInfo;
+            try {
+                adInfo = get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                callback.onError(cause instanceof Exception ? (Exception) cause : e);
+                return;
+            } catch (InterruptedException | CancellationException e) {
+                callback.onError(e);
+                return;
+            }
+            callback.onSuccess(adInfo);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.xendit.DeviceInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the device information used for fraud detection and telemetry.
+ *
+ * A snapshot is never modified once published by {@link DeviceFingerprintCollector}. Fields of
+ * sources that were not collected yet, failed or timed out are null.
+ */
+public final class DeviceFingerprint {
+
+    /**
+     * Where a group of fields comes from, every source has its own time to live
+     */
+    public enum Source {
+        BUILD(Long.MAX_VALUE, 1000),
+        LANGUAGE(24 * 60 * 60 * 1000L, 1000),
+        NETWORK(5 * 60 * 1000L, 2 * 1000),
+        ADVERTISING_ID(24 * 60 * 60 * 1000L, 5 * 1000),
+        LOCATION(15 * 60 * 1000L, 10 * 1000),
+        CELL(15 * 60 * 1000L, 2 * 1000);
+
+        final long ttlMillis;
+        final long timeoutMillis;
+
+        Source(long ttlMillis, long timeoutMillis) {
+            this.ttlMillis = ttlMillis;
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    // BUILD
+    String osVersion;
+    String apiLevel;
+    String device;
+    String model;
+    String product;
+    // LANGUAGE
+    String language;
+    // NETWORK
+    String ipAddress;
+    String wifiSsid;
+    // ADVERTISING_ID
+    String advertisingId;
+    Boolean limitAdTrackingEnabled;
+    // LOCATION
+    Double latitude;
+    Double longitude;
+    // CELL
+    Integer lac;
+    Integer cid;
+
+    // Source name to the time its fields were collected
+    Map<String, Long> collectedAt = new HashMap<>();
+
+    DeviceFingerprint() {
+    }
+
+    DeviceFingerprint(DeviceFingerprint other) {
+        osVersion = other.osVersion;
+        apiLevel = other.apiLevel;
+        device = other.device;
+        model = other.model;
+        product = other.product;
+        language = other.language;
+        ipAddress = other.ipAddress;
+        wifiSsid = other.wifiSsid;
+        advertisingId = other.advertisingId;
+        limitAdTrackingEnabled = other.limitAdTrackingEnabled;
+        latitude = other.latitude;
+        longitude = other.longitude;
+        lac = other.lac;
+        cid = other.cid;
+        collectedAt = new HashMap<>(other.collectedAt);
+    }
+
+    /**
+     * Copies the fields of source from other
+     */
+    void copySource(Source source, DeviceFingerprint other) {
+        switch (source) {
+            case BUILD:
+                osVersion = other.osVersion;
+                apiLevel = other.apiLevel;
+                device = other.device;
+                model = other.model;
+                product = other.product;
+                break;
+            case LANGUAGE:
+                language = other.language;
+                break;
+            case NETWORK:
+                ipAddress = other.ipAddress;
+                wifiSsid = other.wifiSsid;
+                break;
+            case ADVERTISING_ID:
+                advertisingId = other.advertisingId;
+                limitAdTrackingEnabled = other.limitAdTrackingEnabled;
+                break;
+            case LOCATION:
+                latitude = other.latitude;
+                longitude = other.longitude;
+                break;
+            case CELL:
+                lac = other.lac;
+                cid = other.cid;
+                break;
+        }
+    }
+
+    /**
+     * @return true if the fields of source are missing or older than its time to live
+     */
+    public boolean isExpired(Source source) {
+        Long time = collectedAt.get(source.name());
+        if (time == null) {
+            return true;
+        }
+        long age = System.currentTimeMillis() - time;
+        return age < 0 || age > source.ttlMillis;
+    }
+
+    public String getOsVersion() {
+        return osVersion;
+    }
+
+    public String getApiLevel() {
+        return apiLevel;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public String getWifiSsid() {
+        return wifiSsid;
+    }
+
+    public String getAdvertisingId() {
+        return advertisingId;
+    }
+
+    public Boolean isLimitAdTrackingEnabled() {
+        return limitAdTrackingEnabled;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public Integer getLac() {
+        return lac;
+    }
+
+    public Integer getCid() {
+        return cid;
+    }
+}
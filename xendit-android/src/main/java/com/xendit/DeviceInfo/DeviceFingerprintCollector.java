@@ -0,0 +1,336 @@
+package com.xendit.DeviceInfo;
+
+import android.Manifest;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.location.Location;
+import android.net.ConnectivityManager;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.xendit.DeviceInfo.DeviceFingerprint.Source;
+import com.xendit.Models.ModelGson;
+import com.xendit.utils.PermissionUtils;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Collects the {@link DeviceFingerprint} of the device once per process and keeps it fresh.
+ *
+ * The sources are collected in parallel on background threads, each with its own timeout, so a
+ * slow source such as the advertising ID service never holds back the others. Only the sources
+ * past their time to live are collected again. The snapshot is cached in memory and in
+ * SharedPreferences, and connectivity and locale changes expire the sources they affect.
+ */
+public final class DeviceFingerprintCollector {
+
+    public interface Listener {
+        /**
+         * Called on a background thread once the expired sources were collected
+         */
+        void onFingerprint(DeviceFingerprint fingerprint);
+    }
+
+    private static final String TAG = "DeviceFingerprint";
+    private static final String PREFERENCES_NAME = "com.xendit.device_fingerprint";
+    private static final String SNAPSHOT_KEY = "snapshot";
+
+    private static volatile DeviceFingerprintCollector instance;
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Gson gson = ModelGson.get();
+    private final Object lock = new Object();
+    // guarded by lock
+    private final List<Listener> pendingListeners = new ArrayList<>();
+    private boolean collecting;
+    // per source, the last time a broadcast made its fields stale
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(Source.values().length);
+    private volatile DeviceFingerprint snapshot = new DeviceFingerprint();
+    private volatile boolean loaded;
+
+    private final Runnable collectTask = new Runnable() {
+        @Override
+        public void run() {
+            collectExpiredSources();
+        }
+    };
+
+    public static DeviceFingerprintCollector getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DeviceFingerprintCollector.class) {
+                if (instance == null) {
+                    Context applicationContext = context.getApplicationContext();
+                    instance = new DeviceFingerprintCollector(applicationContext != null ? applicationContext : context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DeviceFingerprintCollector(Context context) {
+        this.context = context;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xendit-fingerprint");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the cached snapshot right away and refreshes the expired sources in the background.
+     * Fields that were never collected are null.
+     *
+     * @return The latest snapshot
+     */
+    public DeviceFingerprint getSnapshot() {
+        DeviceFingerprint current = snapshot;
+        if (!loaded || hasExpiredSource(current)) {
+            collect(null);
+        }
+        return current;
+    }
+
+    /**
+     * Collects the expired sources, if any, and hands the up to date snapshot to listener
+     *
+     * @param listener Called on a background thread, may be null
+     */
+    public void collect(Listener listener) {
+        DeviceFingerprint current = snapshot;
+        if (listener != null && loaded && !hasExpiredSource(current)) {
+            listener.onFingerprint(current);
+            return;
+        }
+
+        synchronized (lock) {
+            if (listener != null) {
+                pendingListeners.add(listener);
+            }
+            if (collecting) {
+                return;
+            }
+            collecting = true;
+        }
+        executor.execute(collectTask);
+    }
+
+    /**
+     * Marks the fields of source as stale and collects them again
+     */
+    public void invalidate(Source source) {
+        invalidatedAt.set(source.ordinal(), System.currentTimeMillis());
+        collect(null);
+    }
+
+    private boolean isExpired(DeviceFingerprint fingerprint, Source source) {
+        if (fingerprint.isExpired(source)) {
+            return true;
+        }
+        Long collectedAt = fingerprint.collectedAt.get(source.name());
+        return collectedAt <= invalidatedAt.get(source.ordinal());
+    }
+
+    private boolean hasExpiredSource(DeviceFingerprint fingerprint) {
+        for (Source source : Source.values()) {
+            if (isExpired(fingerprint, source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectExpiredSources() {
+        if (!loaded) {
+            DeviceFingerprint stored = readFromDisk();
+            if (stored != null) {
+                snapshot = stored;
+            }
+            registerReceivers();
+            loaded = true;
+        }
+
+        DeviceFingerprint current = snapshot;
+        long start = System.currentTimeMillis();
+        Map<Source, Future<DeviceFingerprint>> futures = new EnumMap<>(Source.class);
+        for (final Source source : Source.values()) {
+            if (isExpired(current, source)) {
+                futures.put(source, executor.submit(new Callable<DeviceFingerprint>() {
+                    @Override
+                    public DeviceFingerprint call() throws Exception {
+                        return collectSource(source);
+                    }
+                }));
+            }
+        }
+
+        if (!futures.isEmpty()) {
+            DeviceFingerprint updated = new DeviceFingerprint(current);
+            for (Map.Entry<Source, Future<DeviceFingerprint>> entry : futures.entrySet()) {
+                Source source = entry.getKey();
+                Future<DeviceFingerprint> future = entry.getValue();
+                long remaining = Math.max(0, start + source.timeoutMillis - System.currentTimeMillis());
+                try {
+                    updated.copySource(source, future.get(remaining, TimeUnit.MILLISECONDS));
+                    updated.collectedAt.put(source.name(), start);
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    Log.d(TAG, source + " timed out");
+                } catch (ExecutionException e) {
+                    Log.d(TAG, source + " failed: " + e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            snapshot = updated;
+            writeToDisk(updated);
+        }
+
+        List<Listener> listeners;
+        synchronized (lock) {
+            listeners = new ArrayList<>(pendingListeners);
+            pendingListeners.clear();
+            collecting = false;
+        }
+        for (Listener listener : listeners) {
+            listener.onFingerprint(snapshot);
+        }
+    }
+
+    private DeviceFingerprint collectSource(Source source) throws Exception {
+        DeviceFingerprint partial = new DeviceFingerprint();
+        switch (source) {
+            case BUILD:
+                partial.osVersion = DeviceInfo.getOSVersion();
+                partial.apiLevel = DeviceInfo.getAPILevel();
+                partial.device = DeviceInfo.getDevice();
+                partial.model = DeviceInfo.getModel();
+                partial.product = DeviceInfo.getProduct();
+                break;
+            case LANGUAGE:
+                partial.language = DeviceInfo.getLanguage();
+                break;
+            case NETWORK:
+                partial.ipAddress = DeviceInfo.getIPAddress(true);
+                partial.wifiSsid = DeviceInfo.getWifiSSID(context);
+                break;
+            case ADVERTISING_ID:
+                // shared with any other caller, bounded by the service timeout
+                AdInfo adInfo;
+                try {
+                    adInfo = AdvertisingIdClient.getAdInfo(context, null).get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                partial.advertisingId = adInfo.getId();
+                partial.limitAdTrackingEnabled = adInfo.isLimitAdTrackingEnabled();
+                break;
+            case LOCATION:
+                if (PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)) {
+                    Location location = getLocation(new GPSLocation(context), source.timeoutMillis / 2);
+                    if (location != null) {
+                        partial.latitude = location.getLatitude();
+                        partial.longitude = location.getLongitude();
+                    }
+                }
+                break;
+            case CELL:
+                if (PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION)
+                        || PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)) {
+                    GPSLocation gpsLocation = new GPSLocation(context);
+                    partial.lac = gpsLocation.getLac(context);
+                    partial.cid = gpsLocation.getCid(context);
+                }
+                break;
+        }
+        return partial;
+    }
+
+    /**
+     * @return The last known location, or a fresh one if there is none
+     */
+    private static Location getLocation(GPSLocation gpsLocation, long timeoutMillis) throws InterruptedException {
+        Location location = gpsLocation.getLastKnownLocation();
+        if (location != null) {
+            return location;
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Location> fix = new AtomicReference<>();
+        gpsLocation.requestSingleUpdate(timeoutMillis, new GPSLocation.FixCallback() {
+            @Override
+            public void onFix(Location location) {
+                fix.set(location);
+                latch.countDown();
+            }
+        });
+        latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        return fix.get();
+    }
+
+    private void registerReceivers() {
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (!isInitialStickyBroadcast()) {
+                    invalidate(Source.NETWORK);
+                }
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate(Source.LANGUAGE);
+            }
+        }, new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
+    }
+
+    private DeviceFingerprint readFromDisk() {
+        String json = getPreferences().getString(SNAPSHOT_KEY, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            DeviceFingerprint fingerprint = gson.fromJson(json, DeviceFingerprint.class);
+            if (fingerprint == null || fingerprint.collectedAt == null) {
+                return null;
+            }
+            return fingerprint;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private void writeToDisk(DeviceFingerprint fingerprint) {
+        getPreferences().edit()
+                .putString(SNAPSHOT_KEY, gson.toJson(fingerprint))
+                .apply();
+    }
+
+    private SharedPreferences getPreferences() {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+}
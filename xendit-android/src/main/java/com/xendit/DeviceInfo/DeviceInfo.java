@@ -26,10 +26,29 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public final class DeviceInfo {
 
+    /**
+     * How long the advertising ID service is waited for by default
+     */
+    public static final long ADVERTISING_ID_TIMEOUT_MS = 5 * 1000;
+
+    /**
+     * Blocking retrieval of the advertising ID, prefer {@link AdvertisingIdClient} which does not
+     * block the caller and shares one connection between concurrent callers
+     */
     public static AdInfo getAdvertisingIdInfo(Context context) throws Exception {
+        return getAdvertisingIdInfo(context, ADVERTISING_ID_TIMEOUT_MS);
+    }
+
+    /**
+     * @param timeoutMillis How long to wait for the advertising ID service to connect
+     * @throws TimeoutException if the service did not connect in time
+     */
+    public static AdInfo getAdvertisingIdInfo(Context context, long timeoutMillis) throws Exception {
         if(Looper.myLooper() == Looper.getMainLooper())
             throw new IllegalStateException("Cannot be called from the main thread");
 
@@ -45,7 +64,7 @@ public final class DeviceInfo {
         intent.setPackage("com.google.android.gms");
         try {
             if(context.bindService(intent, connection, Context.BIND_AUTO_CREATE)) {
-                AdvertisingInterface adInterface = new AdvertisingInterface(connection.getBinder());
+                AdvertisingInterface adInterface = new AdvertisingInterface(connection.getBinder(timeoutMillis));
                 return new AdInfo(adInterface.getId(), adInterface.isLimitAdTrackingEnabled(true));
             }
         } catch(Exception e) {
@@ -69,10 +88,14 @@ public final class DeviceInfo {
 
         public void onServiceDisconnected(ComponentName name){}
 
-        public IBinder getBinder() throws InterruptedException {
+        public IBinder getBinder(long timeoutMillis) throws InterruptedException, TimeoutException {
             if (this.retrieved) throw new IllegalStateException();
             this.retrieved = true;
-            return (IBinder)this.queue.take();
+            IBinder binder = this.queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (binder == null) {
+                throw new TimeoutException("Advertising ID service did not connect within " + timeoutMillis + " ms");
+            }
+            return binder;
         }
     }
 
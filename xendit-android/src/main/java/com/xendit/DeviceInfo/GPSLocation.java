@@ -2,12 +2,11 @@ package com.xendit.DeviceInfo;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.location.Address;
-import android.location.Geocoder;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.Looper;
 import android.telephony.TelephonyManager;
 import android.telephony.gsm.GsmCellLocation;
@@ -15,145 +14,214 @@ import android.telephony.gsm.GsmCellLocation;
 import com.xendit.DeviceInfo.Model.DeviceLocation;
 import com.xendit.Logger.Logger;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 import static com.xendit.Xendit.mLogger;
 
+/**
+ * Device location without blocking the caller.
+ *
+ * The best last known fix is returned right away. A single fresh fix can be requested with a
+ * deadline, the listener is always unregistered once it arrives or the deadline passes. Addresses
+ * come from the {@link ReverseGeocoder} cache and are looked up in the background.
+ */
 public class GPSLocation implements LocationListener {
 
+    public interface FixCallback {
+        /**
+         * Called on the main thread
+         *
+         * @param location The fresh fix, or the best last known one if none arrived in time, or
+         *                 null if there is none at all
+         */
+        void onFix(Location location);
+    }
+
     private static final String TAG = "GPSLocation";
-    // The minimum distance to change Updates in meters
-    private static final long MIN_DISTANCE_CHANGE_FOR_UPDATES = 0; // 0 meters
-    // The minimum time between updates in milliseconds
-    private static final long MIN_TIME_BW_UPDATES = 1000 * 60 * 28800; // 8 hours
+    // A last known fix this much newer than another wins regardless of accuracy
+    private static final long SIGNIFICANTLY_NEWER_MS = 2 * 60 * 1000;
 
     private Context context;
     private Double longitude;
     private Double latitude;
+    // guarded by this
+    private final List<FixCallback> pendingCallbacks = new ArrayList<>();
+    // guarded by this, see getHandler()
+    private Handler handler;
+
+    private final Runnable deadline = new Runnable() {
+        @Override
+        public void run() {
+            finishUpdate(getLastKnownLocation());
+        }
+    };
 
-    @SuppressLint("MissingPermission")
     public GPSLocation(Context context) { this.context = context; }
 
-    @SuppressLint("MissingPermission")
     /**
-     * Return latitude and longitude
+     * @return The most recent and accurate fix any enabled provider already has, or null
      */
-    private Double[] getLocationLatLong() {
-        Double[] latlong = new Double[2];
-        latlong[0] = 0.0;
-        latlong[1] = 0.0;
+    @SuppressLint("MissingPermission")
+    public Location getLastKnownLocation() {
+        LocationManager locationManager = getLocationManager();
+        if (locationManager == null) {
+            mLogger.log(Logger.Level.ERROR, "Location manager is null");
+            return null;
+        }
 
+        Location best = null;
         try {
-            // Get the location manager
-            LocationManager locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
-            if (locationManager != null) {
-                // getting GPS status
-                Boolean isGPSEnabled = locationManager
-                        .isProviderEnabled(LocationManager.GPS_PROVIDER);
-
-                // getting network status
-                Boolean isNetworkEnabled = locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER);
-
-                // ——–Gps provider—
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER,
-                        MIN_TIME_BW_UPDATES,
-                        MIN_DISTANCE_CHANGE_FOR_UPDATES, this, Looper.getMainLooper());
-
-                if (isGPSEnabled) {
-                    Location location = locationManager.getLastKnownLocation(LocationManager.GPS_PROVIDER);
-                    locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, MIN_TIME_BW_UPDATES,
-                            MIN_DISTANCE_CHANGE_FOR_UPDATES, this);
-                    if (location != null) {
-                        latlong[0] = location.getLatitude();
-                        latlong[1] = location.getLongitude();
-                        locationManager.removeUpdates(this);
-                        return latlong;
-                    }
-                }
-
-                if (isNetworkEnabled) {
-                    Location location = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
-                    locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, MIN_TIME_BW_UPDATES,
-                            MIN_DISTANCE_CHANGE_FOR_UPDATES, this);
-                    if (location != null) {
-                        latlong[0] = location.getLatitude();
-                        latlong[1] = location.getLongitude();
-                        locationManager.removeUpdates(this);
-                        return latlong;
-                    }
+            for (String provider : locationManager.getProviders(true)) {
+                Location location = locationManager.getLastKnownLocation(provider);
+                if (isBetterLocation(location, best)) {
+                    best = location;
                 }
-
-                // use passive provider
-                Location location = locationManager.getLastKnownLocation(LocationManager.PASSIVE_PROVIDER);
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, MIN_TIME_BW_UPDATES,
-                        MIN_DISTANCE_CHANGE_FOR_UPDATES, this);
-                if (location != null) {
-                    latlong[0] = location.getLatitude();
-                    latlong[1] = location.getLongitude();
-                    locationManager.removeUpdates(this);
-                    return latlong;
-                }
-            } else {
-                mLogger.log(Logger.Level.ERROR, "Location manager is null");
             }
-        } catch (Exception e) {
+        } catch (SecurityException e) {
             mLogger.log(Logger.Level.ERROR, e.getMessage());
-            e.printStackTrace();
         }
-        return latlong;
+        if (best != null) {
+            latitude = best.getLatitude();
+            longitude = best.getLongitude();
+        }
+        return best;
     }
 
     /**
-     * Function to get correct address from lonitude and latitude
-     * @param latitude of device
-     * @param longitude of device
-     * @return DeviceLocation structure
+     * Requests one fresh fix from the GPS provider, or the network provider if GPS is disabled
+     *
+     * @param timeoutMillis How long to wait for the fix before falling back to the last known one
+     * @param callback Notified exactly once on the main thread
      */
-    private DeviceLocation getAddressFromLocation(double latitude, double longitude) {
+    @SuppressLint("MissingPermission")
+    public void requestSingleUpdate(long timeoutMillis, final FixCallback callback) {
+        LocationManager locationManager = getLocationManager();
+        String provider = null;
+        if (locationManager != null) {
+            if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
+                provider = LocationManager.GPS_PROVIDER;
+            } else if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
+                provider = LocationManager.NETWORK_PROVIDER;
+            }
+        }
+        if (provider == null) {
+            final Location location = getLastKnownLocation();
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFix(location);
+                }
+            });
+            return;
+        }
 
-        Geocoder geocoder = new Geocoder(context, Locale.getDefault());
-        DeviceLocation addressInfo = new DeviceLocation();
-        try {
-            List<Address> addressList = geocoder.getFromLocation(latitude, longitude, 1);
-
-            if (addressList != null && addressList.size() > 0) {
-                Address address = addressList.get(0);
-                addressInfo.setAddressLine1(address.getAddressLine(0));
-                addressInfo.setCity(address.getLocality());
-                addressInfo.setPostalCode(address.getPostalCode());
-                addressInfo.setState(address.getAdminArea());
-                addressInfo.setCountryCode(address.getCountryCode());
-                addressInfo.setLatitude(latitude);
-                addressInfo.setLongitude(longitude);
-                return addressInfo;
+        synchronized (this) {
+            pendingCallbacks.add(callback);
+            if (pendingCallbacks.size() > 1) {
+                // an update is already requested
+                return;
             }
-        } catch (Exception e) {
-            mLogger.log(Logger.Level.ERROR, "Unable connect to Geocoder" + e.getMessage());
-        } finally {
-            return addressInfo;
         }
+        Handler handler = getHandler();
+        try {
+            locationManager.requestSingleUpdate(provider, this, Looper.getMainLooper());
+            handler.postDelayed(deadline, timeoutMillis);
+        } catch (RuntimeException e) {
+            mLogger.log(Logger.Level.ERROR, e.getMessage());
+            // the deadline hands the last known location to the callbacks on the main thread
+            handler.post(deadline);
+        }
+    }
+
+    private synchronized Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * Looks up the address of a location in the background
+     */
+    public void getAddress(Location location, ReverseGeocoder.AddressCallback callback) {
+        ReverseGeocoder.getInstance(context).getAddress(location.getLatitude(), location.getLongitude(), callback);
     }
 
     /**
-     * Function which will return device location to calling method
+     * Function which will return device location to calling method. Never blocks: the location is
+     * the best last known fix, and the address fields are only set if the address of that place
+     * was already looked up, otherwise it is looked up in the background for the next call.
      * @return DeviceLocation structure
      */
     public DeviceLocation getLocation() {
-        Double[] latlong = getLocationLatLong();
-        latitude = latlong[0];
-        longitude = latlong[1];
-        return getAddressFromLocation(latlong[0], latlong[1]);
+        Location location = getLastKnownLocation();
+        if (location == null) {
+            latitude = 0.0;
+            longitude = 0.0;
+            return new DeviceLocation();
+        }
+
+        ReverseGeocoder reverseGeocoder = ReverseGeocoder.getInstance(context);
+        DeviceLocation address = reverseGeocoder.getCachedAddress(latitude, longitude);
+        if (address == null) {
+            reverseGeocoder.getAddress(latitude, longitude, null);
+            address = new DeviceLocation();
+            address.setLatitude(latitude);
+            address.setLongitude(longitude);
+        }
+        return address;
     }
 
     @Override
     public void onLocationChanged(Location location) {
-        mLogger.log(Logger.Level.DEBUG,  "Lat: " + location.getLatitude());
-        mLogger.log(Logger.Level.DEBUG,  "Long: " + location.getLongitude());
+        mLogger.log(Logger.Level.DEBUG, "Lat: %s", location.getLatitude());
+        mLogger.log(Logger.Level.DEBUG, "Long: %s", location.getLongitude());
 
         // only latitude longitude to set up
         latitude = location.getLatitude();
         longitude = location.getLongitude();
+        finishUpdate(location);
+    }
+
+    private void finishUpdate(Location location) {
+        List<FixCallback> callbacks;
+        synchronized (this) {
+            if (pendingCallbacks.isEmpty()) {
+                return;
+            }
+            callbacks = new ArrayList<>(pendingCallbacks);
+            pendingCallbacks.clear();
+        }
+        getHandler().removeCallbacks(deadline);
+        LocationManager locationManager = getLocationManager();
+        if (locationManager != null) {
+            locationManager.removeUpdates(this);
+        }
+        for (FixCallback callback : callbacks) {
+            callback.onFix(location);
+        }
+    }
+
+    private LocationManager getLocationManager() {
+        return (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    private static boolean isBetterLocation(Location location, Location best) {
+        if (location == null) {
+            return false;
+        }
+        if (best == null) {
+            return true;
+        }
+        long timeDelta = location.getTime() - best.getTime();
+        if (timeDelta > SIGNIFICANTLY_NEWER_MS) {
+            return true;
+        }
+        if (timeDelta < -SIGNIFICANTLY_NEWER_MS) {
+            return false;
+        }
+        return location.getAccuracy() < best.getAccuracy();
     }
 
     @Override
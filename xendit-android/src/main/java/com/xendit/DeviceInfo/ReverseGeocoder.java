@@ -0,0 +1,199 @@
+package com.xendit.DeviceInfo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Address;
+import android.location.Geocoder;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.xendit.DeviceInfo.Model.DeviceLocation;
+import com.xendit.Models.ModelGson;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Asynchronous reverse geocoding cached by grid cell.
+ *
+ * Coordinates are rounded to a grid of about 110 m, and the address of a cell is looked up with
+ * the Geocoder only once. The most recently used cells are kept in memory and in
+ * SharedPreferences, so later sessions from the same place never hit the Geocoder again.
+ */
+public final class ReverseGeocoder {
+
+    public interface AddressCallback {
+        /**
+         * Called on a background thread
+         *
+         * @param address The address at the requested coordinates, or null if none was found
+         */
+        void onAddress(DeviceLocation address);
+    }
+
+    private static final String TAG = "ReverseGeocoder";
+    private static final String PREFERENCES_NAME = "com.xendit.reverse_geocoder";
+    private static final String CELLS_KEY = "cells";
+    // 3 decimal places, cells of about 110 m
+    private static final int GRID_SCALE = 1000;
+    private static final int MAX_CELLS = 32;
+
+    private static volatile ReverseGeocoder instance;
+
+    private final Context context;
+    private final Gson gson = ModelGson.get();
+    private final ExecutorService executor;
+    // guarded by itself, in access order
+    private final LinkedHashMap<String, DeviceLocation> cells = new LinkedHashMap<>(MAX_CELLS, 0.75f, true);
+    private volatile boolean loaded;
+
+    public static ReverseGeocoder getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ReverseGeocoder.class) {
+                if (instance == null) {
+                    Context applicationContext = context.getApplicationContext();
+                    instance = new ReverseGeocoder(applicationContext != null ? applicationContext : context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ReverseGeocoder(Context context) {
+        this.context = context;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xendit-geocoder");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return The cached address of the cell of the coordinates, or null without looking it up
+     */
+    public DeviceLocation getCachedAddress(double latitude, double longitude) {
+        if (!loaded) {
+            return null;
+        }
+        DeviceLocation cell;
+        synchronized (cells) {
+            cell = cells.get(cellKey(latitude, longitude));
+        }
+        return cell != null ? atCoordinates(cell, latitude, longitude) : null;
+    }
+
+    /**
+     * Looks up the address at the coordinates on a background thread, from the cache if the cell
+     * was already looked up
+     */
+    public void getAddress(final double latitude, final double longitude, final AddressCallback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                DeviceLocation address = getCachedAddress(latitude, longitude);
+                if (address == null) {
+                    address = lookUp(latitude, longitude);
+                }
+                if (callback != null) {
+                    callback.onAddress(address);
+                }
+            }
+        });
+    }
+
+    static String cellKey(double latitude, double longitude) {
+        return Math.round(latitude * GRID_SCALE) + ":" + Math.round(longitude * GRID_SCALE);
+    }
+
+    private DeviceLocation lookUp(double latitude, double longitude) {
+        if (!Geocoder.isPresent()) {
+            return null;
+        }
+        try {
+            Geocoder geocoder = new Geocoder(context, Locale.getDefault());
+            List<Address> addressList = geocoder.getFromLocation(latitude, longitude, 1);
+            if (addressList == null || addressList.isEmpty()) {
+                return null;
+            }
+
+            Address address = addressList.get(0);
+            DeviceLocation addressInfo = new DeviceLocation();
+            addressInfo.setAddressLine1(address.getAddressLine(0));
+            addressInfo.setCity(address.getLocality());
+            addressInfo.setPostalCode(address.getPostalCode());
+            addressInfo.setState(address.getAdminArea());
+            addressInfo.setCountryCode(address.getCountryCode());
+            addressInfo.setLatitude(latitude);
+            addressInfo.setLongitude(longitude);
+            store(cellKey(latitude, longitude), addressInfo);
+            return addressInfo;
+        } catch (Exception e) {
+            Log.d(TAG, "Unable connect to Geocoder " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, DeviceLocation address) {
+        String json;
+        synchronized (cells) {
+            cells.put(key, address);
+            while (cells.size() > MAX_CELLS) {
+                String eldest = cells.keySet().iterator().next();
+                cells.remove(eldest);
+            }
+            json = gson.toJson(cells);
+        }
+        getPreferences().edit().putString(CELLS_KEY, json).apply();
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        String json = getPreferences().getString(CELLS_KEY, null);
+        if (json != null) {
+            try {
+                Map<String, DeviceLocation> stored = gson.fromJson(json,
+                        new TypeToken<LinkedHashMap<String, DeviceLocation>>() {}.getType());
+                if (stored != null) {
+                    synchronized (cells) {
+                        cells.putAll(stored);
+                    }
+                }
+            } catch (JsonParseException e) {
+                Log.d(TAG, "Dropping unreadable cache: " + e.getMessage());
+            }
+        }
+        loaded = true;
+    }
+
+    private SharedPreferences getPreferences() {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return a copy of the cell's address with the exact coordinates
+     */
+    private static DeviceLocation atCoordinates(DeviceLocation cell, double latitude, double longitude) {
+        DeviceLocation address = new DeviceLocation();
+        address.setAddressLine1(cell.getAddressLine1());
+        address.setCity(cell.getCity());
+        address.setPostalCode(cell.getPostalCode());
+        address.setState(cell.getState());
+        address.setCountryCode(cell.getCountryCode());
+        address.setLatitude(latitude);
+        address.setLongitude(longitude);
+        return address;
+    }
+}
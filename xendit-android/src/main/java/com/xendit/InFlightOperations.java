@@ -0,0 +1,166 @@
+package com.xendit;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Operations in flight, identical calls made meanwhile join them instead of starting their own.
+ *
+ * An operation is identified by an HMAC-SHA256 of its parameters under a random key that never
+ * leaves the process memory. A plain digest of a card number and CVN could be brute-forced from
+ * the known BIN, the HMAC cannot without the key. The callbacks of every caller that joined it
+ * get the one result. A caller that is cancelled leaves the operation, which is cancelled only
+ * once no caller is left. An operation that never completed, e.g. because its 3DS screen was
+ * destroyed, stops being joined after a while, its callers can still leave it.
+ *
+ * @param <C> Type of the callbacks
+ */
+final class InFlightOperations<C> {
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    static final class Operation<C> {
+        final String key;
+        /**
+         * Sent with every request of the operation, so the server answers a repeated request
+         * with the result of the first one
+         */
+        final String idempotencyKey = UUID.randomUUID().toString();
+        final long startedAt;
+        private final List<C> callbacks = new ArrayList<>(1);
+        // guarded by the InFlightOperations
+        private Future<?> future;
+        private boolean abandoned;
+
+        private Operation(String key, long startedAt) {
+            this.key = key;
+            this.startedAt = startedAt;
+        }
+    }
+
+    // guarded by this
+    private final Map<String, Operation<C>> operations = new HashMap<>();
+    // guarded by this, also holds the callers of operations no longer joined
+    private final Map<C, Operation<C>> joined = new HashMap<>();
+
+    /**
+     * @return The operation the caller must start, or null if callback joined an identical
+     * operation in flight
+     */
+    synchronized Operation<C> join(String key, C callback, long now) {
+        Operation<C> operation = operations.get(key);
+        if (operation != null && now - operation.startedAt < MAX_AGE_MILLIS) {
+            operation.callbacks.add(callback);
+            joined.put(callback, operation);
+            return null;
+        }
+        operation = new Operation<>(key, now);
+        operation.callbacks.add(callback);
+        joined.put(callback, operation);
+        operations.put(key, operation);
+        return operation;
+    }
+
+    Operation<C> join(String key, C callback) {
+        return join(key, callback, System.currentTimeMillis());
+    }
+
+    /**
+     * Sets the future of operation, cancelled once every caller left it
+     *
+     * @return false if every caller already left, future must then be cancelled right away
+     */
+    synchronized boolean start(Operation<C> operation, Future<?> future) {
+        operation.future = future;
+        return !operation.abandoned;
+    }
+
+    /**
+     * Removes callback from the operation it joined, e.g. once its call was cancelled. The
+     * operation ends once no caller is left, later identical calls start a new one.
+     *
+     * @return The future of the operation, to cancel, if callback was its last caller
+     */
+    synchronized Future<?> leave(C callback) {
+        Operation<C> operation = joined.remove(callback);
+        if (operation == null) {
+            return null;
+        }
+        operation.callbacks.remove(callback);
+        if (!operation.callbacks.isEmpty()) {
+            return null;
+        }
+        if (operations.get(operation.key) == operation) {
+            operations.remove(operation.key);
+        }
+        operation.abandoned = true;
+        return operation.future;
+    }
+
+    /**
+     * Ends the operation, later identical calls start a new one
+     *
+     * @return The callbacks to hand the result to
+     */
+    synchronized List<C> complete(Operation<C> operation) {
+        if (operations.get(operation.key) == operation) {
+            operations.remove(operation.key);
+        }
+        List<C> callbacks = new ArrayList<>(operation.callbacks);
+        for (C callback : callbacks) {
+            joined.remove(callback);
+        }
+        operation.callbacks.clear();
+        return callbacks;
+    }
+
+    /**
+     * @return A hex HMAC-SHA256 of the parameters of an operation, stable within the process
+     */
+    static String key(String... parameters) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(KeyHolder.KEY);
+            for (String parameter : parameters) {
+                mac.update(String.valueOf(parameter).getBytes(UTF_8));
+                // separator, so ("ab", "c") and ("a", "bc") differ
+                mac.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : mac.doFinal()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            // every Java and Android runtime has HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Created on the first operation only
+     */
+    private static final class KeyHolder {
+        static final SecretKeySpec KEY = createKey();
+
+        private static SecretKeySpec createKey() {
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            return new SecretKeySpec(key, HMAC_ALGORITHM);
+        }
+    }
+}
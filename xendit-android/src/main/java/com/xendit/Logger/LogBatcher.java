@@ -0,0 +1,311 @@
+package com.xendit.Logger;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Base64;
+import android.util.Log;
+
+import com.xendit.network.HttpTransport;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+
+/**
+ * Process-wide batcher of log lines.
+ *
+ * Lines are appended to a bounded lock-free ring buffer and sent to LogDNA as one "lines" array
+ * per request. A batch is sent once BATCH_SIZE lines are buffered, FLUSH_INTERVAL_MS after the
+ * first buffered line, or when the app goes to the background. When the buffer is full lines are
+ * dropped according to the overflow policy and counted.
+ *
+ * Batches that cannot be sent, because the device is offline or the request failed, are written
+ * to a {@link LogSpool} on disk and uploaded when connectivity returns.
+ */
+final class LogBatcher {
+
+    private static final String TAG = "Logger";
+    private static final int BUFFER_CAPACITY = 512;
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_INTERVAL_MS = 30 * 1000;
+    private static final String SPOOL_DIRECTORY = "xendit_log_spool";
+    private static final long SPOOL_FILE_BYTES = 256 * 1024;
+    private static final int SPOOL_FILES = 8;
+    // auth part, this is INGESTION_KEY
+    private static final String AUTH = "f324854fcb2ca3c397aa0536e0555070: ";
+
+    private static volatile LogBatcher instance;
+
+    private final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    private final Context context;
+    // set up by initTask, only used on the logger thread
+    private ApiInterface apiInterface;
+    private String accessToken;
+    private ConnectivityManager connectivityManager;
+    private LogSpool spool;
+    private volatile Logger.OverflowPolicy overflowPolicy = Logger.OverflowPolicy.DROP_OLDEST;
+
+    private final Runnable initTask = new Runnable() {
+        @Override
+        public void run() {
+            initialize();
+        }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            boolean online = isConnected();
+            String batch;
+            while ((batch = nextBatch()) != null) {
+                if (!online || !send(batch)) {
+                    online = false;
+                    spool(batch);
+                }
+            }
+            if (online) {
+                drainSpool();
+            }
+        }
+    };
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            if (isConnected()) {
+                drainSpool();
+            }
+        }
+    };
+
+    private final LogSpool.Sender spoolSender = new LogSpool.Sender() {
+        @Override
+        public boolean send(String batch) {
+            return LogBatcher.this.send(batch);
+        }
+    };
+
+    static LogBatcher getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LogBatcher.class) {
+                if (instance == null) {
+                    Context applicationContext = context.getApplicationContext();
+                    instance = new LogBatcher(applicationContext != null ? applicationContext : context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private LogBatcher(Context context) {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xendit-logger");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        this.context = context;
+        // the first task of the logger thread, so it runs before any flush
+        executor.execute(initTask);
+    }
+
+    private void initialize() {
+        // network logger
+        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
+        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+        OkHttpClient client = HttpTransport.getOkHttpClient().newBuilder()
+                .addInterceptor(interceptor)
+                .build();
+
+        // init retrofit
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(ApiInterface.URL_BASE)
+                .addConverterFactory(ScalarsConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create())
+                .client(client)
+                .build();
+        apiInterface = retrofit.create(ApiInterface.class);
+        accessToken = "Basic " + Base64.encodeToString(AUTH.getBytes(), Base64.NO_WRAP);
+
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        spool = new LogSpool(new File(context.getFilesDir(), SPOOL_DIRECTORY), SPOOL_FILE_BYTES, SPOOL_FILES);
+
+        // upload the spooled batches, including the ones of previous processes, once online
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                executor.execute(drainTask);
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+
+        // send what is buffered before the process can be killed in the background
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Buffers a line, never blocks the caller
+     */
+    void add(LogLine line) {
+        if (overflowPolicy == Logger.OverflowPolicy.DROP_OLDEST) {
+            while (!buffer.offer(line)) {
+                if (buffer.poll() != null) {
+                    droppedCount.incrementAndGet();
+                }
+            }
+        } else if (!buffer.offer(line)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        if (buffer.size() >= BATCH_SIZE) {
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(flushTask, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends every buffered line on the logger thread
+     */
+    void flush() {
+        executor.execute(flushTask);
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    void setOverflowPolicy(Logger.OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Takes up to BATCH_SIZE lines from the buffer
+     *
+     * @return the JSON body of the batch, or null if the buffer is empty
+     */
+    private String nextBatch() {
+        JSONArray linesArray = new JSONArray();
+        try {
+            LogLine line;
+            while (linesArray.length() < BATCH_SIZE && (line = buffer.poll()) != null) {
+                JSONObject lineObj = new JSONObject();
+                lineObj.put("timestamp", line.timestamp);
+                lineObj.put("line", line.line);
+                lineObj.put("file", "Xendit SDK");
+                lineObj.put("level", line.level);
+                linesArray.put(lineObj);
+            }
+            if (linesArray.length() == 0) {
+                return null;
+            }
+
+            JSONObject paramObject = new JSONObject();
+            paramObject.put("lines", linesArray);
+            return paramObject.toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Exception: " + e.getMessage());
+            e.printStackTrace();
+            droppedCount.addAndGet(linesArray.length());
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the batch should be retried later
+     */
+    private boolean send(String batch) {
+        try {
+            // send logs to server
+            Call<Void> logs = apiInterface.sendLogs(accessToken, batch);
+            Response<Void> response = logs.execute();
+            Log.d(TAG, "code: " + response.code() + " success: " + response.isSuccessful());
+            if (response.code() >= 400 && response.code() < 500) {
+                // a rejected batch will not be accepted later either
+                droppedCount.addAndGet(lineCount(batch));
+            }
+            return response.code() < 500;
+        } catch (IOException e) {
+            Log.d(TAG, "Failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void spool(String batch) {
+        try {
+            spool.append(batch);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to spool logs: " + e.getMessage());
+            droppedCount.addAndGet(lineCount(batch));
+        }
+    }
+
+    private static int lineCount(String batch) {
+        try {
+            return new JSONObject(batch).getJSONArray("lines").length();
+        } catch (JSONException e) {
+            return 1;
+        }
+    }
+
+    private void drainSpool() {
+        try {
+            if (!spool.isEmpty()) {
+                spool.drain(spoolSender);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read spooled logs: " + e.getMessage());
+        }
+    }
+
+    private boolean isConnected() {
+        NetworkInfo networkInfo = connectivityManager != null ? connectivityManager.getActiveNetworkInfo() : null;
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
@@ -0,0 +1,17 @@
+package com.xendit.Logger;
+
+/**
+ * A single log line waiting in the LogBatcher
+ */
+final class LogLine {
+
+    final long timestamp;
+    final String line;
+    final String level;
+
+    LogLine(long timestamp, String line, String level) {
+        this.timestamp = timestamp;
+        this.line = line;
+        this.level = level;
+    }
+}
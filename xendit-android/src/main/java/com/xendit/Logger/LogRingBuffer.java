@@ -0,0 +1,88 @@
+package com.xendit.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer ring buffer of log lines.
+ *
+ * Every slot carries a sequence number telling whether it is ready to be written or read at a
+ * given position, so producers and consumers only ever CAS their own position counter.
+ */
+final class LogRingBuffer {
+
+    private final int mask;
+    private final AtomicReferenceArray<LogLine> lines;
+    private final AtomicLongArray sequences;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        lines = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(LogLine line) {
+        long position = writePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    lines.set(index, line);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = writePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = writePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest line, or null if the buffer is empty
+     */
+    LogLine poll() {
+        long position = readPosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (readPosition.compareAndSet(position, position + 1)) {
+                    LogLine line = lines.getAndSet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return line;
+                }
+                position = readPosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = readPosition.get();
+            }
+        }
+    }
+
+    int size() {
+        long size = writePosition.get() - readPosition.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
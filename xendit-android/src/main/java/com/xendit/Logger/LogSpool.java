@@ -0,0 +1,206 @@
+package com.xendit.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Append-only on-disk spool of log batches that could not be sent.
+ *
+ * Every batch is one line of JSON appended sequentially to the newest spool file and synced to
+ * disk right away, so it survives process death and power loss. Files are rotated once they reach the size cap,
+ * and the oldest file is deleted when there are more than the maximum number of files. The spool
+ * is drained oldest batch first.
+ *
+ * This class does no network access, the batcher passes a {@link Sender} when draining.
+ */
+final class LogSpool {
+
+    interface Sender {
+        /**
+         * @return false if the batch could not be sent and should stay in the spool
+         */
+        boolean send(String batch);
+    }
+
+    private static final String SUFFIX = ".spool";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    private Writer writer;
+    private FileOutputStream stream;
+    private File currentFile;
+    private long currentFileBytes;
+
+    /**
+     * @param directory Where the spool files are kept, created on the first append
+     * @param maxFileBytes Size after which the current file is rotated
+     * @param maxFiles Number of files kept, the oldest ones are deleted first
+     */
+    LogSpool(File directory, long maxFileBytes, int maxFiles) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Appends a batch to the spool
+     *
+     * @param batch Single line JSON body of a batch
+     */
+    synchronized void append(String batch) throws IOException {
+        byte[] bytes = (batch + "\n").getBytes(UTF_8);
+        if (writer == null || currentFileBytes + bytes.length > maxFileBytes) {
+            rotate();
+        }
+        writer.write(batch);
+        writer.write('\n');
+        writer.flush();
+        stream.getFD().sync();
+        currentFileBytes += bytes.length;
+    }
+
+    synchronized boolean isEmpty() {
+        return listFiles().length == 0;
+    }
+
+    /**
+     * Sends the spooled batches oldest first and removes them once sent. Stops at the first batch
+     * that could not be sent.
+     *
+     * @return true if the whole spool was sent
+     */
+    synchronized boolean drain(Sender sender) throws IOException {
+        closeWriter();
+
+        for (File file : listFiles()) {
+            List<String> batches = readBatches(file);
+            for (int i = 0; i < batches.size(); i++) {
+                if (!sender.send(batches.get(i))) {
+                    rewrite(file, batches.subList(i, batches.size()));
+                    return false;
+                }
+            }
+            file.delete();
+        }
+        return true;
+    }
+
+    private void rotate() throws IOException {
+        closeWriter();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File[] files = listFiles();
+        long sequence = files.length == 0 ? 0 : sequenceOf(files[files.length - 1]) + 1;
+        for (int i = 0; i <= files.length - maxFiles; i++) {
+            files[i].delete();
+        }
+
+        currentFile = new File(directory, sequence + SUFFIX);
+        currentFileBytes = 0;
+        stream = new FileOutputStream(currentFile, true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream, UTF_8));
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            Writer closing = writer;
+            writer = null;
+            stream = null;
+            currentFile = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * @return spool files, oldest first
+     */
+    private File[] listFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+
+        List<File> spoolFiles = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX) && sequenceOf(file) >= 0) {
+                spoolFiles.add(file);
+            }
+        }
+        File[] sorted = spoolFiles.toArray(new File[spoolFiles.size()]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = sequenceOf(a) - sequenceOf(b);
+                return difference < 0 ? -1 : (difference == 0 ? 0 : 1);
+            }
+        });
+        return sorted;
+    }
+
+    private static long sequenceOf(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<String> readBatches(File file) throws IOException {
+        List<String> batches = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    batches.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return batches;
+    }
+
+    /**
+     * Replaces the content of file with batches, through a temporary file so that a crash never
+     * leaves a half written spool file
+     */
+    private static void rewrite(File file, List<String> batches) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temporary);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, UTF_8));
+        try {
+            for (String batch : batches) {
+                writer.write(batch);
+                writer.write('\n');
+            }
+            writer.flush();
+            // on disk before the rename replaces the file
+            stream.getFD().sync();
+        } finally {
+            writer.close();
+        }
+        if (!temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException("Unable to rewrite " + file);
+        }
+    }
+}
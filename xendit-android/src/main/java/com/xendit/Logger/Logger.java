@@ -2,25 +2,12 @@ package com.xendit.Logger;
 
 import android.Manifest;
 import android.content.Context;
-import android.util.Base64;
 import android.util.Log;
 
 import com.xendit.utils.PermissionUtils;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.util.EnumMap;
-
-import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
-import retrofit2.converter.scalars.ScalarsConverterFactory;
+import java.util.Locale;
 
 public class Logger {
 
@@ -34,19 +21,39 @@ public class Logger {
         VERBOSE
     }
 
-    private ApiInterface apiInterface;
-    private String publishableKey;
-    private EnumMap<Level, String> enumMap;
-    private Context context;
+    /**
+     * What to do with a new line when the log buffer is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the oldest buffered line to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the new line
+         */
+        DROP_NEWEST
+    }
 
-    public Logger(Context context, String userPublishableKey) {
+    /**
+     * Builds a log message only when it is going to be sent
+     */
+    public interface MessageSupplier {
+        String get();
+    }
 
-        // set publishable key and context
-        this.publishableKey = userPublishableKey;
-        this.context = context;
+    private static final int PERMISSION_UNKNOWN = 0;
+    private static final int PERMISSION_GRANTED = 1;
+    private static final int PERMISSION_DENIED = 2;
 
+    private static volatile Level minimumLevel = Level.WARN;
+    // ACCESS_NETWORK_STATE is an install time permission, it cannot change while the process lives
+    private static volatile int networkStatePermission = PERMISSION_UNKNOWN;
+
+    private static final EnumMap<Level, String> enumMap = new EnumMap<>(Level.class);
+
+    static {
         // init enums
-        enumMap = new EnumMap<>(Level.class);
         enumMap.put(Level.FATAL  , "Fatal");
         enumMap.put(Level.ERROR  , "Error");
         enumMap.put(Level.WARN   , "Warn");
@@ -54,71 +61,126 @@ public class Logger {
         enumMap.put(Level.DEBUG  , "Debug");
         enumMap.put(Level.TRACE  , "Trace");
         enumMap.put(Level.VERBOSE, "Verbose");
+    }
 
-        // network logger
-        HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
-        interceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        OkHttpClient client = new OkHttpClient.Builder()
-                .addInterceptor(interceptor)
-                .build();
+    private String publishableKey;
+    private Context context;
+
+    /**
+     * Cheap to create, the log transport is only set up when the first line is logged
+     */
+    public Logger(Context context, String userPublishableKey) {
 
-        // init retrofit
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(ApiInterface.URL_BASE)
-                .addConverterFactory(ScalarsConverterFactory.create())
-                .addConverterFactory(GsonConverterFactory.create())
-                .client(client)
-                .build();
-        apiInterface = retrofit.create(ApiInterface.class);
+        // set publishable key and context
+        this.publishableKey = userPublishableKey;
+        this.context = context;
     }
 
     /**
-     * Send logs to server
+     * Sets the least severe level that is sent to the server, more verbose lines are discarded
+     * before their message is built. Defaults to WARN.
+     *
+     * @param level Minimum level, e.g. VERBOSE to send everything
+     */
+    public static void setLevel(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("level must not be null");
+        }
+        minimumLevel = level;
+    }
+
+    public static Level getLevel() {
+        return minimumLevel;
+    }
+
+    /**
+     * @return true if lines of levelCode are sent, use it to guard expensive message building
+     */
+    public boolean isLoggable(Level levelCode) {
+        return levelCode.ordinal() <= minimumLevel.ordinal();
+    }
+
+    /**
+     * Queue logs to be sent to server with the next batch
      * @param levelCode of logs
      * @param logMessage log message that will be printout to server
      */
     public void log(Level levelCode, String logMessage) {
-        if(PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_NETWORK_STATE)) {
-            try {
-                // get string level
-                String level = enumMap.get(levelCode);
-                // create json body
-                long unixTime = System.currentTimeMillis() / 1000L;
-                JSONObject paramObject = new JSONObject();
-                JSONArray linesArray = new JSONArray();
-                paramObject.put("lines", linesArray);
-                JSONObject lineObj = new JSONObject();
-                lineObj.put("timestamp", unixTime);
-                lineObj.put("line", publishableKey + " " + logMessage);
-                lineObj.put("file", "Xendit SDK");
-                lineObj.put("level", level);
-                linesArray.put(lineObj);
-
-                // auth part, this is INGESTION_KEY
-                final String AUTH = "f324854fcb2ca3c397aa0536e0555070: ";
-                String accessToken = "Basic " + Base64.encodeToString(AUTH.getBytes(), Base64.NO_WRAP);
-
-                // send logs to server
-                Call<Void> logs = apiInterface.sendLogs(accessToken, paramObject.toString());
-                logs.enqueue(new Callback<Void>() {
-                    @Override
-                    public void onResponse(Call<Void> call, Response<Void> response) {
-                        int code = response.code();
-                        boolean success = response.isSuccessful();
-                        Log.d("Logger", "code: " + code + " success: " + success);
-                    }
-
-                    @Override
-                    public void onFailure(Call<Void> call, Throwable t) {
-                        Log.d("Logger", "Failed: " + t.getMessage());
-                    }
-                });
-            } catch (JSONException e) {
-                Log.e("Logger", "Exception: " + e.getMessage());
-                e.printStackTrace();
-            }
+        if (isLoggable(levelCode)) {
+            enqueue(levelCode, logMessage);
+        }
+    }
+
+    /**
+     * Queue logs to be sent to server with the next batch, the message is only formatted if
+     * levelCode is loggable
+     * @param levelCode of logs
+     * @param format {@link String#format(String, Object...)} format of the message
+     * @param args arguments of format
+     */
+    public void log(Level levelCode, String format, Object... args) {
+        if (isLoggable(levelCode)) {
+            enqueue(levelCode, String.format(Locale.US, format, args));
+        }
+    }
+
+    /**
+     * Queue logs to be sent to server with the next batch, the message is only built if
+     * levelCode is loggable
+     * @param levelCode of logs
+     * @param messageSupplier builds the log message
+     */
+    public void log(Level levelCode, MessageSupplier messageSupplier) {
+        if (isLoggable(levelCode)) {
+            enqueue(levelCode, messageSupplier.get());
+        }
+    }
+
+    private void enqueue(Level levelCode, String logMessage) {
+        if (hasNetworkStatePermission()) {
+            // get string level
+            String level = enumMap.get(levelCode);
+            long unixTime = System.currentTimeMillis() / 1000L;
+            getBatcher().add(new LogLine(unixTime, publishableKey + " " + logMessage, level));
         } else {
             Log.e("Logger", "Internet permission is not granted");
         }
     }
+
+    private LogBatcher getBatcher() {
+        return LogBatcher.getInstance(context);
+    }
+
+    private boolean hasNetworkStatePermission() {
+        int permission = networkStatePermission;
+        if (permission == PERMISSION_UNKNOWN) {
+            permission = PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_NETWORK_STATE)
+                    ? PERMISSION_GRANTED : PERMISSION_DENIED;
+            networkStatePermission = permission;
+        }
+        return permission == PERMISSION_GRANTED;
+    }
+
+    /**
+     * Sends the buffered logs now instead of waiting for the batch to fill up
+     */
+    public void flush() {
+        getBatcher().flush();
+    }
+
+    /**
+     * @return The number of log lines dropped because the buffer was full or their batch could
+     *         not be sent
+     */
+    public long getDroppedLineCount() {
+        return getBatcher().getDroppedCount();
+    }
+
+    /**
+     * @param overflowPolicy What to do with new lines when the buffer is full, defaults to
+     *                       DROP_OLDEST
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        getBatcher().setOverflowPolicy(overflowPolicy);
+    }
 }
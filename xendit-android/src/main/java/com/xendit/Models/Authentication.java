@@ -13,19 +13,22 @@ import com.google.gson.annotations.SerializedName;
 public class Authentication implements Parcelable {
 
     @SerializedName("id")
-    private String id;
+    String id;
 
     @SerializedName("status")
-    private String status;
+    String status;
 
     @SerializedName("authentication_id")
-    private String authentication_id;
+    String authentication_id;
 
     @SerializedName("payer_authentication_url")
-    private String payerAuthenticationUrl;
+    String payerAuthenticationUrl;
 
     @SerializedName("masked_card_number")
-    private String maskedCardNumber;
+    String maskedCardNumber;
+
+    Authentication() {
+    }
 
     private Authentication(Parcel in) {
         id = in.readString();
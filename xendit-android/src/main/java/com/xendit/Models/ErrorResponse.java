@@ -0,0 +1,42 @@
+package com.xendit.Models;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Body of an error response.
+ *
+ * The API answers with error_code and message, Flex with a responseStatus object holding reason
+ * and message, and 3DS results with a failure_reason. Fields missing from the body are null.
+ */
+public class ErrorResponse {
+
+    @SerializedName("error_code")
+    String errorCode;
+
+    @SerializedName("message")
+    String message;
+
+    @SerializedName("failure_reason")
+    String failureReason;
+
+    ErrorResponse() {
+    }
+
+    /**
+     * @return error_code, or the reason of a Flex responseStatus
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return message, or the message of a Flex responseStatus
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+}
@@ -0,0 +1,249 @@
+package com.xendit.Models;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Process-wide Gson with streaming TypeAdapters for the SDK models.
+ *
+ * Gson is thread-safe and caches its adapters, so one instance is shared by every request and
+ * receiver instead of building a new one per message. The models parsed on the payment path are
+ * read field by field without reflection, under the same names as their SerializedName
+ * annotations so JSON stored by older versions still reads back.
+ */
+public final class ModelGson {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Authentication.class, new AuthenticationAdapter().nullSafe())
+            .registerTypeAdapter(TokenConfiguration.class, new TokenConfigurationAdapter().nullSafe())
+            .registerTypeAdapter(TokenCreditCard.class, new TokenCreditCardAdapter().nullSafe())
+            .registerTypeAdapter(ErrorResponse.class, new ErrorResponseAdapter().nullSafe())
+            .create();
+
+    private ModelGson() {
+    }
+
+    public static Gson get() {
+        return GSON;
+    }
+
+    static final class AuthenticationAdapter extends TypeAdapter<Authentication> {
+
+        @Override
+        public void write(JsonWriter out, Authentication value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.id);
+            out.name("status").value(value.status);
+            out.name("authentication_id").value(value.authentication_id);
+            out.name("payer_authentication_url").value(value.payerAuthenticationUrl);
+            out.name("masked_card_number").value(value.maskedCardNumber);
+            out.endObject();
+        }
+
+        @Override
+        public Authentication read(JsonReader in) throws IOException {
+            Authentication authentication = new Authentication();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        authentication.id = nextString(in);
+                        break;
+                    case "status":
+                        authentication.status = nextString(in);
+                        break;
+                    case "authentication_id":
+                        authentication.authentication_id = nextString(in);
+                        break;
+                    case "payer_authentication_url":
+                        authentication.payerAuthenticationUrl = nextString(in);
+                        break;
+                    case "masked_card_number":
+                        authentication.maskedCardNumber = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return authentication;
+        }
+    }
+
+    static final class TokenConfigurationAdapter extends TypeAdapter<TokenConfiguration> {
+
+        @Override
+        public void write(JsonWriter out, TokenConfiguration value) throws IOException {
+            out.beginObject();
+            out.name("tokenization_auth_key_id").value(value.tokenizationAuthKeyId);
+            out.name("flex_api_key").value(value.flexApiKey);
+            out.name("flex_production_url").value(value.flexProductionUrl);
+            out.name("flex_development_url").value(value.flexDevelopmentUrl);
+            out.endObject();
+        }
+
+        @Override
+        public TokenConfiguration read(JsonReader in) throws IOException {
+            TokenConfiguration configuration = new TokenConfiguration();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tokenization_auth_key_id":
+                        configuration.tokenizationAuthKeyId = nextString(in);
+                        break;
+                    case "flex_api_key":
+                        configuration.flexApiKey = nextString(in);
+                        break;
+                    case "flex_production_url":
+                        configuration.flexProductionUrl = nextString(in);
+                        break;
+                    case "flex_development_url":
+                        configuration.flexDevelopmentUrl = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return configuration;
+        }
+    }
+
+    static final class TokenCreditCardAdapter extends TypeAdapter<TokenCreditCard> {
+
+        @Override
+        public void write(JsonWriter out, TokenCreditCard value) throws IOException {
+            out.beginObject();
+            out.name("keyId").value(value.keyId);
+            out.name("token").value(value.token);
+            out.name("maskedPan").value(value.maskedPan);
+            out.name("cardType").value(value.cardType);
+            out.name("timestamp").value(value.timestamp);
+            out.name("signedFields").value(value.signedFields);
+            out.name("signature").value(value.signature);
+            out.endObject();
+        }
+
+        @Override
+        public TokenCreditCard read(JsonReader in) throws IOException {
+            TokenCreditCard creditCard = new TokenCreditCard();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "keyId":
+                        creditCard.keyId = nextString(in);
+                        break;
+                    case "token":
+                        creditCard.token = nextString(in);
+                        break;
+                    case "maskedPan":
+                        creditCard.maskedPan = nextString(in);
+                        break;
+                    case "cardType":
+                        creditCard.cardType = nextString(in);
+                        break;
+                    case "timestamp":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            creditCard.timestamp = in.nextLong();
+                        }
+                        break;
+                    case "signedFields":
+                        creditCard.signedFields = nextString(in);
+                        break;
+                    case "signature":
+                        creditCard.signature = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return creditCard;
+        }
+    }
+
+    static final class ErrorResponseAdapter extends TypeAdapter<ErrorResponse> {
+
+        @Override
+        public void write(JsonWriter out, ErrorResponse value) throws IOException {
+            out.beginObject();
+            out.name("error_code").value(value.errorCode);
+            out.name("message").value(value.message);
+            out.name("failure_reason").value(value.failureReason);
+            out.endObject();
+        }
+
+        @Override
+        public ErrorResponse read(JsonReader in) throws IOException {
+            ErrorResponse error = new ErrorResponse();
+            String flexReason = null;
+            String flexMessage = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "error_code":
+                        error.errorCode = nextString(in);
+                        break;
+                    case "message":
+                        error.message = nextString(in);
+                        break;
+                    case "failure_reason":
+                        error.failureReason = nextString(in);
+                        break;
+                    case "responseStatus":
+                        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                            in.skipValue();
+                            break;
+                        }
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "reason":
+                                    flexReason = nextString(in);
+                                    break;
+                                case "message":
+                                    flexMessage = nextString(in);
+                                    break;
+                                default:
+                                    in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            // the Flex shape only applies when the API one is missing
+            if (error.errorCode == null && error.message == null) {
+                error.errorCode = flexReason;
+                error.message = flexMessage;
+            }
+            return error;
+        }
+    }
+
+    /**
+     * @return The string, number or boolean at the reader as a string, null for a JSON null
+     */
+    private static String nextString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(in.nextBoolean());
+            default:
+                return in.nextString();
+        }
+    }
+}
@@ -9,16 +9,16 @@ import com.google.gson.annotations.SerializedName;
 public class TokenConfiguration {
 
     @SerializedName("tokenization_auth_key_id")
-    private String tokenizationAuthKeyId;
+    String tokenizationAuthKeyId;
 
     @SerializedName("flex_api_key")
-    private String flexApiKey;
+    String flexApiKey;
 
     @SerializedName("flex_production_url")
-    private String flexProductionUrl;
+    String flexProductionUrl;
 
     @SerializedName("flex_development_url")
-    private String flexDevelopmentUrl;
+    String flexDevelopmentUrl;
 
     public String getTokenizationAuthKeyId() {
         return tokenizationAuthKeyId;
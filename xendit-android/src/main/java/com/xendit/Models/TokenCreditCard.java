@@ -9,25 +9,25 @@ import com.google.gson.annotations.SerializedName;
 public class TokenCreditCard {
 
     @SerializedName("keyId")
-    private String keyId;
+    String keyId;
 
     @SerializedName("token")
-    private String token;
+    String token;
 
     @SerializedName("maskedPan")
-    private String maskedPan;
+    String maskedPan;
 
     @SerializedName("cardType")
-    private String cardType;
+    String cardType;
 
     @SerializedName("timestamp")
-    private long timestamp;
+    long timestamp;
 
     @SerializedName("signedFields")
-    private String signedFields;
+    String signedFields;
 
     @SerializedName("signature")
-    private String signature;
+    String signature;
 
     public String getKeyId() {
         return keyId;
@@ -2,9 +2,6 @@ package com.xendit.Models;
 
 import com.xendit.network.errors.NetworkError;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 /**
  * Created by Sergey on 3/16/17.
  */
@@ -26,23 +23,16 @@ public class XenditError {
     }
 
     public XenditError(NetworkError networkError) {
-        try {
-            this.errorCode =  networkError.errorResponse.getString("error_code");
-            this.errorMessage = networkError.errorResponse.getString("message");
-        } catch (Exception e) {
-            if (networkError.errorResponse == null) {
-                this.errorCode = "NETWORK_ERROR";
-                this.errorMessage = networkError.getMessage();
-            } else {
-                try {
-                    JSONObject flexResponseStatus = networkError.errorResponse.getJSONObject("responseStatus");
-                    this.errorCode = flexResponseStatus.getString("reason");
-                    this.errorMessage = flexResponseStatus.getString("message");
-                } catch (JSONException ex) {
-                    this.errorCode = "SERVER_ERROR";
-                    this.errorMessage = "Something unexpected happened, we are investigating this issue right now";
-                }
-            }
+        ErrorResponse errorResponse = networkError.getErrorResponse();
+        if (errorResponse == null) {
+            this.errorCode = "NETWORK_ERROR";
+            this.errorMessage = networkError.getMessage();
+        } else if (errorResponse.getErrorCode() != null && errorResponse.getMessage() != null) {
+            this.errorCode = errorResponse.getErrorCode();
+            this.errorMessage = errorResponse.getMessage();
+        } else {
+            this.errorCode = "SERVER_ERROR";
+            this.errorMessage = "Something unexpected happened, we are investigating this issue right now";
         }
 
         this.authentication = null;
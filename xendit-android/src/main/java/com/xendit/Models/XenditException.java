@@ -0,0 +1,19 @@
+package com.xendit.Models;
+
+/**
+ * Carries the {@link XenditError} of a failed {@link com.xendit.XenditFuture} as the cause of
+ * the ExecutionException thrown by its get methods
+ */
+public class XenditException extends Exception {
+
+    private final XenditError error;
+
+    public XenditException(XenditError error) {
+        super(error.getErrorCode() + ": " + error.getErrorMessage());
+        this.error = error;
+    }
+
+    public XenditError getError() {
+        return error;
+    }
+}
@@ -0,0 +1,144 @@
+package com.xendit;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How long each stage of a token creation took, from the call to the response creating the
+ * token. 3DS authentication by the user is not part of it.
+ *
+ * The configuration is fetched while the card is prepared, so the total is shorter than the sum
+ * of the stages. {@link #getStageStartMillis(Stage)} shows where a stage sat on the timeline.
+ */
+public final class TokenizationTiming {
+
+    public enum Stage {
+        /**
+         * Fetching the tokenization configuration, about zero when it was cached
+         */
+        CONFIGURATION,
+        /**
+         * Validating the card and resolving its type
+         */
+        PREPARATION,
+        /**
+         * Sending the card data to Flex
+         */
+        TOKENIZE_CARD,
+        /**
+         * Creating the credit card token from the Flex token
+         */
+        CREATE_TOKEN
+    }
+
+    /**
+     * Receives the timing of every token creation
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread once the token is created or its creation failed, before
+         * any 3DS authentication
+         */
+        void onTiming(TokenizationTiming timing);
+    }
+
+    private static final int STAGES = Stage.values().length;
+
+    private final long startNanos;
+    // start of stage i at 2 * i, its end at 2 * i + 1, as a mark, see mark(long)
+    private final AtomicLongArray marks = new AtomicLongArray(2 * STAGES);
+    private volatile long endMark;
+    private volatile boolean configurationCached;
+
+    TokenizationTiming() {
+        this(System.nanoTime());
+    }
+
+    TokenizationTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    void start(Stage stage) {
+        start(stage, System.nanoTime());
+    }
+
+    void start(Stage stage, long nanos) {
+        marks.set(2 * stage.ordinal(), mark(nanos));
+    }
+
+    void end(Stage stage) {
+        end(stage, System.nanoTime());
+    }
+
+    void end(Stage stage, long nanos) {
+        marks.set(2 * stage.ordinal() + 1, mark(nanos));
+    }
+
+    void finish() {
+        finish(System.nanoTime());
+    }
+
+    void finish(long nanos) {
+        endMark = mark(nanos);
+    }
+
+    /**
+     * nanoTime can be any value, 0 included, so a mark is the offset from the call plus 1 and 0
+     * is left for "not reached"
+     */
+    private long mark(long nanos) {
+        return nanos - startNanos + 1;
+    }
+
+    private static long toMillis(long mark) {
+        return TimeUnit.NANOSECONDS.toMillis(mark - 1);
+    }
+
+    void setConfigurationCached(boolean configurationCached) {
+        this.configurationCached = configurationCached;
+    }
+
+    /**
+     * @return Whether the configuration was already available, from the cache or fetched for a
+     * whole batch, instead of fetched for this token
+     */
+    public boolean isConfigurationCached() {
+        return configurationCached;
+    }
+
+    /**
+     * @return How long stage took, or -1 if it did not complete
+     */
+    public long getStageMillis(Stage stage) {
+        long start = marks.get(2 * stage.ordinal());
+        long end = marks.get(2 * stage.ordinal() + 1);
+        return start == 0 || end == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(end - start);
+    }
+
+    /**
+     * @return When stage started, relative to the call creating the token, or -1 if it did not
+     */
+    public long getStageStartMillis(Stage stage) {
+        long start = marks.get(2 * stage.ordinal());
+        return start == 0 ? -1 : toMillis(start);
+    }
+
+    /**
+     * @return The time from the call to the token response, the critical path of the stages
+     */
+    public long getTotalMillis() {
+        long end = endMark;
+        return end == 0 ? -1 : toMillis(end);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("TokenizationTiming{total=").append(getTotalMillis()).append("ms");
+        for (Stage stage : Stage.values()) {
+            builder.append(String.format(Locale.US, ", %s=%dms@%dms", stage.name().toLowerCase(Locale.US),
+                    getStageMillis(stage), getStageStartMillis(stage)));
+        }
+        return builder.append(", configurationCached=").append(configurationCached).append('}').toString();
+    }
+}
@@ -2,49 +2,60 @@ package com.xendit;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
+import android.app.Activity;
 import android.content.Context;
-import android.content.IntentFilter;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Base64;
 import android.util.Log;
 
 import com.android.volley.Request;
-import com.android.volley.RequestQueue;
 import com.android.volley.VolleyError;
-import com.android.volley.toolbox.HttpStack;
-import com.android.volley.toolbox.HurlStack;
-import com.android.volley.toolbox.Volley;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
-import com.xendit.DeviceInfo.GPSLocation;
-import com.xendit.DeviceInfo.Model.DeviceLocation;
+import com.xendit.DeviceInfo.DeviceFingerprint;
+import com.xendit.DeviceInfo.DeviceFingerprintCollector;
 import com.xendit.Logger.Logger;
 import com.xendit.Models.Authentication;
 import com.xendit.Models.Card;
+import com.xendit.Models.ErrorResponse;
 import com.xendit.Models.Token;
 import com.xendit.Models.TokenConfiguration;
 import com.xendit.Models.TokenCreditCard;
 import com.xendit.Models.XenditError;
-import com.xendit.DeviceInfo.AdInfo;
-import com.xendit.DeviceInfo.DeviceInfo;
 import com.xendit.network.BaseRequest;
+import com.xendit.network.ConnectionWarmer;
 import com.xendit.network.DefaultResponseHandler;
+import com.xendit.network.Endpoint;
+import com.xendit.network.HttpTransport;
+import com.xendit.network.JsonBodyWriter;
 import com.xendit.network.NetworkHandler;
-import com.xendit.network.TLSSocketFactory;
+import com.xendit.network.RetrySettings;
+import com.xendit.network.TokenConfigurationCache;
+import com.xendit.network.errors.AuthorisationError;
 import com.xendit.network.errors.ConnectionError;
 import com.xendit.network.errors.NetworkError;
 import com.xendit.network.interfaces.ResultListener;
 import com.xendit.utils.CardValidator;
 import com.xendit.utils.PermissionUtils;
 
-import java.io.UnsupportedEncodingException;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.sentry.Sentry;
 import io.sentry.SentryClient;
@@ -70,18 +81,100 @@ public class Xendit {
     private static final String DNS_SERVER = "https://182c197ad5c04f878fef7eab1e0cbcd6@sentry.io/262922";
     static final String ACTION_KEY = "ACTION_KEY";
 
+    /**
+     * Cards of a batch in flight at a time, one per network thread of the request queue
+     */
+    public static final int MAX_CONCURRENT_TOKENIZATIONS = 4;
+
     private Context context;
     private String publishableKey;
-    private RequestQueue requestQueue;
     private ConnectivityManager connectivityManager;
+    private TokenConfigurationCache tokenConfigurationCache;
+    private final Map<String, String> authorizationHeaders;
+    private final Map<Endpoint, RetrySettings> retrySettings = new ConcurrentHashMap<>();
+    private volatile TokenizationTiming.Listener tokenizationTimingListener;
+    // tags the requests of this instance in the shared queue
+    private final Object requestTag = new Object();
+    private final Set<XenditFuture<?>> operations = Collections.newSetFromMap(new ConcurrentHashMap<XenditFuture<?>, Boolean>());
+
+    // shared by every instance, the publishable key is part of the operation keys
+    private static final InFlightOperations<TokenCallback> tokenOperations = new InFlightOperations<>();
+    private static final InFlightOperations<AuthenticationCallback> authenticationOperations = new InFlightOperations<>();
+
+    // sets up the process and reads the disk caches off the main thread, its thread exits when idle
+    private static final ThreadPoolExecutor initExecutor = createInitExecutor();
+    private static final AtomicBoolean initialized = new AtomicBoolean();
 
     public static Logger mLogger;
+
+    /**
+     * Returns right away. Sentry and the debug device info are set up once per process on a
+     * background thread, the cached tokenization configuration of the key is loaded there once
+     * too, and the network stack is created on first use. When context is an Activity, the calls in flight
+     * are cancelled once it finishes, see {@link #cancelAll()}.
+     */
     public Xendit(final Context context, String publishableKey) {
         this.context = context;
         this.publishableKey = publishableKey;
 
         // init logdna logger
         mLogger = new Logger(context, publishableKey);
+        tokenConfigurationCache = new TokenConfigurationCache(context, publishableKey);
+        authorizationHeaders = createAuthorizationHeaders(publishableKey);
+        if (context instanceof Activity) {
+            cancelAllWhenFinished((Activity) context);
+        }
+
+        if (!tokenConfigurationCache.isLoaded()) {
+            initExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    tokenConfigurationCache.load();
+                }
+            });
+        }
+        if (initialized.compareAndSet(false, true)) {
+            final Context applicationContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            initExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    initialize(applicationContext);
+                }
+            });
+        }
+    }
+
+    private static ThreadPoolExecutor createInitExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "xendit-init");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void cancelAllWhenFinished(Activity activity) {
+        ActivityFinishWatcher.watch(activity, cancellingAll(new WeakReference<>(this)));
+    }
+
+    // static, so the watcher keeps neither this instance nor its activity alive
+    private static Runnable cancellingAll(final WeakReference<Xendit> xendit) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Xendit instance = xendit.get();
+                if (instance != null) {
+                    instance.cancelAll();
+                }
+            }
+        };
+    }
+
+    private static void initialize(Context context) {
         mLogger.log(Logger.Level.DEBUG, "Start debugging");
 
         // init sentry
@@ -91,69 +184,121 @@ public class Xendit {
         // filter out exceptions
         shouldSendException();
 
-        //get device info
-        new Thread(new Runnable() {
-            public void run() {
-                try {
-                    AdInfo adInfo = DeviceInfo.getAdvertisingIdInfo(context);
-                    String advertisingId = adInfo.getId();
-                    mLogger.log(Logger.Level.DEBUG, "ADID: " + advertisingId);
-                } catch (Exception e) {
-                    mLogger.log(Logger.Level.ERROR, e.getMessage());
-                    e.printStackTrace();
+        // device info is only collected for debug logs
+        if (mLogger.isLoggable(Logger.Level.DEBUG)) {
+            logDeviceInfo(context);
+        }
+    }
+
+    private static void logDeviceInfo(Context context) {
+        //get device info, collected once per process and cached
+        DeviceFingerprintCollector.getInstance(context).collect(new DeviceFingerprintCollector.Listener() {
+            @Override
+            public void onFingerprint(DeviceFingerprint fingerprint) {
+                mLogger.log(Logger.Level.DEBUG, "ADID: %s", fingerprint.getAdvertisingId());
+                mLogger.log(Logger.Level.DEBUG, "OS version: %s\n OS API Level: %s\n Device: %s\n Model (and Product): %s (%s)",
+                        fingerprint.getOsVersion(), fingerprint.getApiLevel(), fingerprint.getDevice(),
+                        fingerprint.getModel(), fingerprint.getProduct());
+                mLogger.log(Logger.Level.DEBUG, "SSID: %s", fingerprint.getWifiSsid());
+                mLogger.log(Logger.Level.DEBUG, "Language: %s", fingerprint.getLanguage());
+                mLogger.log(Logger.Level.DEBUG, "IP: %s", fingerprint.getIpAddress());
+                if (fingerprint.getLatitude() == null) {
+                    mLogger.log(Logger.Level.DEBUG, "Location is not available");
+                } else {
+                    mLogger.log(Logger.Level.DEBUG, "Latitude: %s", fingerprint.getLatitude());
+                    mLogger.log(Logger.Level.DEBUG, "Longitude: %s", fingerprint.getLongitude());
+                }
+                if (fingerprint.getLac() != null && fingerprint.getLac() != 0) {
+                    mLogger.log(Logger.Level.DEBUG, "Lac: %s", fingerprint.getLac());
+                }
+                if (fingerprint.getCid() != null && fingerprint.getCid() != 0) {
+                    mLogger.log(Logger.Level.DEBUG, "Cid: %s", fingerprint.getCid());
                 }
             }
-        }).start();
-        mLogger.log(Logger.Level.DEBUG, "OS version: " + DeviceInfo.getOSVersion() + "\n OS API Level: " +
-                 DeviceInfo.getAPILevel() + "\n Device: " + DeviceInfo.getDevice() +
-                "\n Model (and Product): " + DeviceInfo.getModel() + " (" + DeviceInfo.getProduct() + ")"
-        );
-        if (DeviceInfo.getWifiSSID(context).equals("Does not have ACCESS_WIFI_STATE permission")) {
-            mLogger.log(Logger.Level.DEBUG, "SSID: " + DeviceInfo.getWifiSSID(context));
-        }
-        mLogger.log(Logger.Level.DEBUG, "Language: " + DeviceInfo.getLanguage());
-        mLogger.log(Logger.Level.DEBUG, "IP: " + DeviceInfo.getIPAddress(true));
+        });
+    }
 
+    /**
+     * Prepares the tokenization pipeline ahead of time, e.g. when the payment screen opens. The
+     * tokenization configuration is fetched and cached, and the Xendit and flex hosts are resolved
+     * and connected to, so that creating a token later only pays for the requests themselves.
+     */
+    public void warmUp() {
+        mLogger.log(Logger.Level.INFO, "warmUp");
+        if (!isConnectionAvailable()) {
+            return;
+        }
 
-        if(!PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)) {
-             mLogger.log(Logger.Level.DEBUG, "Access Fine Location permission is not granted");
-        } else {
-            GPSLocation gpsLocation = new GPSLocation(context);
-            DeviceLocation deviceLocation = gpsLocation.getLocation();
-            if (deviceLocation != null && deviceLocation.getLatitude() != null) {
-                mLogger.log(Logger.Level.DEBUG, "Latitude: " + deviceLocation.getLatitude());
-                mLogger.log(Logger.Level.DEBUG, "Longitude: " + deviceLocation.getLongitude());
-            }
-            mLogger.log(Logger.Level.DEBUG, "Latitude: " + gpsLocation.getLatitude());
-            mLogger.log(Logger.Level.DEBUG, "Longitude: " + gpsLocation.getLongitude());
-            if (gpsLocation.getLac(context) != 0) {
-                mLogger.log(Logger.Level.DEBUG, "Lac: " + gpsLocation.getLac(context));
-            }
-            if (gpsLocation.getCid(context) != 0) {
-                mLogger.log(Logger.Level.DEBUG, "Cid: " + gpsLocation.getCid(context));
+        getCachedTokenizationConfiguration(new ResultListener<TokenConfiguration>() {
+            @Override
+            public void onSuccess(TokenConfiguration tokenConfiguration) {
+                String flexUrl = getEnvironment() ? tokenConfiguration.getFlexProductionUrl() : tokenConfiguration.getFlexDevelopmentUrl();
+                ConnectionWarmer.warmUp(HttpTransport.getOkHttpClient(), PRODUCTION_XENDIT_BASE_URL, flexUrl);
             }
-        }
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
-                && Build.VERSION.SDK_INT <= Build.VERSION_CODES.KITKAT) {
 
-            HttpStack stack;
-            try {
-                stack = new HurlStack(null, new TLSSocketFactory());
-            } catch (KeyManagementException e) {
-                mLogger.log(Logger.Level.ERROR, e.getMessage());
-                e.printStackTrace();
-                stack = new HurlStack();
-            } catch (NoSuchAlgorithmException e) {
-                mLogger.log(Logger.Level.ERROR, e.getMessage());
-                e.printStackTrace();
-                stack = new HurlStack();
+            @Override
+            public void onFailure(NetworkError error) {
+                mLogger.log(Logger.Level.ERROR, "Warm up failed: %s", error.getMessage());
             }
-            requestQueue = Volley.newRequestQueue(context, stack);
-        } else {
-            requestQueue = Volley.newRequestQueue(context);
+        });
+    }
+
+    /**
+     * Cancels every call of this instance in flight, e.g. when the user leaves the checkout. Their
+     * callbacks are not called and no 3DS screen is opened for them. Requests not sent yet are
+     * dropped and the network calls in progress are aborted, unless an identical call, of this or
+     * another instance, joined them and still awaits their result.
+     */
+    public void cancelAll() {
+        mLogger.log(Logger.Level.INFO, "cancelAll");
+        for (XenditFuture<?> operation : operations) {
+            operation.cancel(false);
         }
+        HttpTransport.getRequestQueue(context).cancelAll(requestTag);
+    }
+
+    /**
+     * Sets how long the tokenization configuration is reused before it is fetched again.
+     * Defaults to one hour.
+     *
+     * @param ttlMillis Time to live of the cached configuration in milliseconds, 0 to always
+     *                  refresh it
+     */
+    public void setTokenConfigurationCacheTtl(long ttlMillis) {
+        tokenConfigurationCache.setTtl(ttlMillis);
+    }
 
-        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    /**
+     * Sets how long after its time to live an expired tokenization configuration is still used
+     * while a fresh one is fetched in the background. Defaults to one day.
+     *
+     * @param maxStaleMillis Maximum staleness in milliseconds, 0 to always wait for a fresh
+     *                       configuration once the time to live has passed
+     */
+    public void setTokenConfigurationCacheMaxStale(long maxStaleMillis) {
+        tokenConfigurationCache.setMaxStale(maxStaleMillis);
+    }
+
+    /**
+     * Sets the timeouts and retries of the requests to endpoint. GET requests are retried with
+     * {@link RetrySettings#DEFAULT} unless set otherwise, POST requests are only ever retried
+     * when they carry an idempotency key.
+     *
+     * @param endpoint The call to configure
+     * @param settings Its timeouts and retries, e.g. {@link RetrySettings#NO_RETRY}
+     */
+    public void setRetrySettings(Endpoint endpoint, RetrySettings settings) {
+        retrySettings.put(endpoint, settings);
+    }
+
+    /**
+     * Reports how long the stages of every token creation took, e.g. to monitor the time users
+     * wait for a token. The timings are also logged at debug level.
+     *
+     * @param listener Receives the timings, null to stop reporting them
+     */
+    public void setTokenizationTimingListener(TokenizationTiming.Listener listener) {
+        tokenizationTimingListener = listener;
     }
 
     /**
@@ -244,6 +389,108 @@ public class Xendit {
         createSingleOrMultipleUseToken(card, "0", false, true, tokenCallback);
     }
 
+    /**
+     * Creates a single-use token like {@link #createSingleUseToken(Card, int, boolean, TokenCallback)}
+     *
+     * @return The future token, cancelling it cancels the requests in flight
+     */
+    public XenditFuture<Token> createSingleUseToken(Card card, int amount, boolean shouldAuthenticate) {
+        mLogger.log(Logger.Level.INFO, "createSingleUseToken");
+        return tokenFuture(card, Integer.toString(amount), shouldAuthenticate, false);
+    }
+
+    /**
+     * Creates a multiple-use token like {@link #createMultipleUseToken(Card, TokenCallback)}
+     *
+     * @return The future token, cancelling it cancels the requests in flight
+     */
+    public XenditFuture<Token> createMultipleUseToken(Card card) {
+        mLogger.log(Logger.Level.INFO, "createMultipleUseToken");
+        return tokenFuture(card, "0", false, true);
+    }
+
+    private XenditFuture<Token> tokenFuture(Card card, String amount, boolean shouldAuthenticate, boolean isMultipleUse) {
+        if (card == null) {
+            return XenditFuture.failed(new XenditError(context.getString(R.string.create_token_error_card_number)));
+        }
+        return createSingleOrMultipleUseToken(card, amount, shouldAuthenticate, isMultipleUse);
+    }
+
+    /**
+     * Creates a multiple-use token for every card, e.g. when saving several cards at once. The
+     * cards share one tokenization configuration and connection pool, at most
+     * {@link #MAX_CONCURRENT_TOKENIZATIONS} of them are in flight at a time. A card that fails does
+     * not affect the others. The timing of every card goes to the
+     * {@link #setTokenizationTimingListener(TokenizationTiming.Listener) timing listener}.
+     *
+     * @param cards The credit cards
+     * @param batchTokenCallback The callback that will be called with the result of every card as
+     *                           it completes, then once all have
+     */
+    public void createMultipleUseTokens(final List<Card> cards, final BatchTokenCallback batchTokenCallback) {
+        mLogger.log(Logger.Level.INFO, "createMultipleUseTokens");
+        if (cards != null && batchTokenCallback != null) {
+            final BatchTokenization batch = new BatchTokenization(cards, MAX_CONCURRENT_TOKENIZATIONS, batchTokenCallback);
+            track(getCachedTokenizationConfiguration()).addCallback(new XenditFuture.Callback<TokenConfiguration>() {
+                @Override
+                public void onSuccess(final TokenConfiguration tokenConfiguration) {
+                    batch.start(new BatchTokenization.Tokenizer() {
+                        @Override
+                        public void tokenize(Card card, TokenCallback tokenCallback) {
+                            createMultipleUseToken(tokenConfiguration, card, onMainThread(tokenCallback));
+                        }
+                    });
+                }
+
+                @Override
+                public void onError(final XenditError error) {
+                    mLogger.log(Logger.Level.ERROR, error.getErrorMessage());
+                    XenditFuture.mainThreadExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            batch.fail(error);
+                        }
+                    });
+                }
+            }, XenditFuture.directExecutor());
+        }
+    }
+
+    /**
+     * Creates a multiple-use token of a batch with the configuration fetched for the whole batch
+     */
+    private void createMultipleUseToken(TokenConfiguration tokenConfiguration, Card card, TokenCallback tokenCallback) {
+        if (card == null) {
+            tokenCallback.onError(new XenditError(context.getString(R.string.create_token_error_card_number)));
+            return;
+        }
+        TokenizationTiming timing = new TokenizationTiming();
+        AtomicReference<String> cardType = new AtomicReference<>();
+        timing.start(TokenizationTiming.Stage.PREPARATION);
+        XenditError validationError = prepareCard(card, cardType);
+        timing.end(TokenizationTiming.Stage.PREPARATION);
+        if (validationError != null) {
+            mLogger.log(Logger.Level.ERROR, validationError.getErrorMessage());
+            tokenCallback.onError(validationError);
+            return;
+        }
+
+        String operationKey = InFlightOperations.key(publishableKey, card.getCreditCardNumber(),
+                card.getCardExpirationMonth(), card.getCardExpirationYear(), card.getCreditCardCVN(),
+                "0", String.valueOf(false), String.valueOf(true));
+        XenditFuture<Token> call = track(new XenditFuture<Token>());
+        call.addCallback(callingBack(tokenCallback), XenditFuture.directExecutor());
+        InFlightOperations.Operation<TokenCallback> operation = joinTokenCreation(operationKey, call);
+        if (operation == null) {
+            mLogger.log(Logger.Level.DEBUG, "Joined an identical token creation in flight");
+            return;
+        }
+        timing.setConfigurationCached(true);
+        XenditFuture<Authentication> authentication = createCreditCardToken(tokenConfiguration, card, cardType.get(),
+                "0", false, true, operation.idempotencyKey, timing);
+        startOperation(tokenOperations, operation, deliverToken(authentication, timing, operation));
+    }
+
     /**
      * @deprecated As of v.2.0.0.
      * Replaced by {@link #createSingleUseToken(Card, int, boolean, TokenCallback)} for single use token
@@ -255,47 +502,97 @@ public class Xendit {
         createSingleOrMultipleUseToken(card, amount, true, isMultipleUse, tokenCallback);
     }
 
-    private void createSingleOrMultipleUseToken(final Card card, final String amount, final boolean shouldAuthenticate, final boolean isMultipleUse, final TokenCallback tokenCallback) {
-        mLogger.log(Logger.Level.INFO, "createSingleOrMultipleUseToken");
+    private void createSingleOrMultipleUseToken(Card card, String amount, boolean shouldAuthenticate, boolean isMultipleUse, TokenCallback tokenCallback) {
         if (card != null && tokenCallback != null) {
-            if (!CardValidator.isCardNumberValid(card.getCreditCardNumber())) {
-                mLogger.log(Logger.Level.ERROR, new XenditError(context.getString(R.string.create_token_error_card_number)).getErrorMessage());
-                tokenCallback.onError(new XenditError(context.getString(R.string.create_token_error_card_number)));
-                return;
-            }
+            createSingleOrMultipleUseToken(card, amount, shouldAuthenticate, isMultipleUse)
+                    .addCallback(callingBack(tokenCallback), XenditFuture.directExecutor());
+        }
+    }
 
-            if (!CardValidator.isExpiryValid(card.getCardExpirationMonth(), card.getCardExpirationYear())) {
-                mLogger.log(Logger.Level.ERROR,  new XenditError(context.getString(R.string.create_token_error_card_expiration)).getErrorMessage());
-                tokenCallback.onError(new XenditError(context.getString(R.string.create_token_error_card_expiration)));
-                return;
-            }
+    /**
+     * The tokenization configuration is fetched while the card is validated and its type resolved.
+     * A cached configuration leaves the Xendit API connection cold, so it is opened meanwhile for
+     * the token request that follows the Flex request.
+     *
+     * @return The call, cancelling it leaves the token creation it started or joined
+     */
+    private XenditFuture<Token> createSingleOrMultipleUseToken(final Card card, final String amount, final boolean shouldAuthenticate, final boolean isMultipleUse) {
+        mLogger.log(Logger.Level.INFO, "createSingleOrMultipleUseToken");
+        String operationKey = InFlightOperations.key(publishableKey, card.getCreditCardNumber(),
+                card.getCardExpirationMonth(), card.getCardExpirationYear(), card.getCreditCardCVN(),
+                amount, String.valueOf(shouldAuthenticate), String.valueOf(isMultipleUse));
+        XenditFuture<Token> call = track(new XenditFuture<Token>());
+        InFlightOperations.Operation<TokenCallback> operation = joinTokenCreation(operationKey, call);
+        if (operation == null) {
+            mLogger.log(Logger.Level.DEBUG, "Joined an identical token creation in flight");
+            return call;
+        }
+        final String idempotencyKey = operation.idempotencyKey;
+        final TokenizationTiming timing = new TokenizationTiming();
 
-            if (card.getCreditCardCVN() != null && !CardValidator.isCvnValid(card.getCreditCardCVN())) {
-                mLogger.log(Logger.Level.ERROR,  new XenditError(context.getString(R.string.create_token_error_card_cvn)).getErrorMessage());
-                tokenCallback.onError(new XenditError(context.getString(R.string.create_token_error_card_cvn)));
-                return;
-            }
+        boolean configurationCached = tokenConfigurationCache.get() != null;
+        timing.setConfigurationCached(configurationCached);
+        if (configurationCached) {
+            ConnectionWarmer.warmUp(HttpTransport.getOkHttpClient(), PRODUCTION_XENDIT_BASE_URL);
+        }
+        XenditFuture<TokenConfiguration> configuration = timed(TokenizationTiming.Stage.CONFIGURATION, timing, getCachedTokenizationConfiguration());
+
+        timing.start(TokenizationTiming.Stage.PREPARATION);
+        AtomicReference<String> cardType = new AtomicReference<>();
+        XenditError validationError = prepareCard(card, cardType);
+        timing.end(TokenizationTiming.Stage.PREPARATION);
+
+        if (validationError != null) {
+            mLogger.log(Logger.Level.ERROR, validationError.getErrorMessage());
+            configuration.cancel(false);
+            completingTokenCreation(operation).onError(validationError);
+            return call;
+        }
 
-            if (card.getCreditCardCVN() != null && !CardValidator.isCvnValidForCardType(card.getCreditCardCVN(), card.getCreditCardNumber())) {
-                mLogger.log(Logger.Level.ERROR,  new XenditError(context.getString(R.string.error_card_cvn_invalid_for_type)).getErrorMessage());
-                tokenCallback.onError(new XenditError(context.getString(R.string.error_card_cvn_invalid_for_type)));
-                return;
+        final String preparedCardType = cardType.get();
+        XenditFuture<Authentication> authentication = configuration.transformAsync(new XenditFuture.AsyncFunction<TokenConfiguration, Authentication>() {
+            @Override
+            public XenditFuture<Authentication> apply(TokenConfiguration tokenConfiguration) {
+                mLogger.log(Logger.Level.DEBUG,  "Successfully tokenize configuration");
+                return createCreditCardToken(tokenConfiguration, card, preparedCardType, amount, shouldAuthenticate, isMultipleUse, idempotencyKey, timing);
             }
+        }, XenditFuture.directExecutor());
+        startOperation(tokenOperations, operation, deliverToken(authentication, timing, operation));
+        return call;
+    }
 
-            getTokenizationConfiguration(new NetworkHandler<TokenConfiguration>().setResultListener(new ResultListener<TokenConfiguration>() {
-                @Override
-                public void onSuccess(TokenConfiguration tokenConfiguration) {
-                    tokenizeCreditCardRequest(tokenConfiguration, card, amount, shouldAuthenticate, isMultipleUse, tokenCallback);
-                    mLogger.log(Logger.Level.DEBUG,  "Successfully tokenize configuration");
-                }
+    /**
+     * Validates card and resolves its type into cardType
+     *
+     * @return The error to report for card, or null if it can be tokenized
+     */
+    private XenditError prepareCard(Card card, AtomicReference<String> cardType) {
+        XenditError validationError = validateCard(card);
+        if (validationError == null) {
+            try {
+                cardType.set(CardValidator.getCardType(card.getCreditCardNumber()).getCardTypeKey());
+            } catch (NullPointerException e) {
+                mLogger.log(Logger.Level.ERROR, e.getMessage());
+                validationError = new XenditError(new NetworkError(new VolleyError(e.getMessage(), e.getCause())));
+            }
+        }
+        return validationError;
+    }
 
-                @Override
-                public void onFailure(NetworkError error) {
-                    mLogger.log(Logger.Level.ERROR,  error.getMessage());
-                    tokenCallback.onError(new XenditError(error));
-                }
-            }));
+    private XenditError validateCard(Card card) {
+        if (!CardValidator.isCardNumberValid(card.getCreditCardNumber())) {
+            return new XenditError(context.getString(R.string.create_token_error_card_number));
+        }
+        if (!CardValidator.isExpiryValid(card.getCardExpirationMonth(), card.getCardExpirationYear())) {
+            return new XenditError(context.getString(R.string.create_token_error_card_expiration));
         }
+        if (card.getCreditCardCVN() != null && !CardValidator.isCvnValid(card.getCreditCardCVN())) {
+            return new XenditError(context.getString(R.string.create_token_error_card_cvn));
+        }
+        if (card.getCreditCardCVN() != null && !CardValidator.isCvnValidForCardType(card.getCreditCardCVN(), card.getCreditCardNumber())) {
+            return new XenditError(context.getString(R.string.error_card_cvn_invalid_for_type));
+        }
+        return null;
     }
 
     /**
@@ -309,38 +606,82 @@ public class Xendit {
      */
     public void createAuthentication(final String tokenId, final int amount, final AuthenticationCallback authenticationCallback) {
         mLogger.log(Logger.Level.INFO,  "createAuthentication");
+        createAuthenticationCall(tokenId, amount).addCallback(callingBack(authenticationCallback), XenditFuture.directExecutor());
+    }
+
+    /**
+     * Creates a 3DS authentication like {@link #createAuthentication(String, int, AuthenticationCallback)}
+     *
+     * @return The future authentication, cancelling it cancels the request in flight
+     */
+    public XenditFuture<Authentication> createAuthentication(String tokenId, int amount) {
+        mLogger.log(Logger.Level.INFO,  "createAuthentication");
+        return createAuthenticationCall(tokenId, amount);
+    }
+
+    /**
+     * @return The call, cancelling it leaves the authentication it started or joined
+     */
+    private XenditFuture<Authentication> createAuthenticationCall(String tokenId, int amount) {
         if (tokenId == null || tokenId.equals("")) {
             mLogger.log(Logger.Level.ERROR,  new XenditError(context.getString(R.string.create_token_error_validation)).getErrorMessage());
-            authenticationCallback.onError(new XenditError(context.getString(R.string.create_token_error_validation)));
-            return;
+            return XenditFuture.failed(new XenditError(context.getString(R.string.create_token_error_validation)));
         }
 
         if (amount <= 0) {
             mLogger.log(Logger.Level.ERROR, new XenditError(context.getString(R.string.create_token_error_validation)).getErrorMessage());
-            authenticationCallback.onError(new XenditError(context.getString(R.string.create_token_error_validation)));
-            return;
+            return XenditFuture.failed(new XenditError(context.getString(R.string.create_token_error_validation)));
         }
 
         String amountStr = Integer.toString(amount);
 
-        _createAuthentication(tokenId, amountStr, new NetworkHandler<Authentication>().setResultListener(new ResultListener<Authentication>() {
+        XenditFuture<Authentication> call = track(new XenditFuture<Authentication>());
+        AuthenticationCallback callback = settingAuthenticationCallback(call);
+        final InFlightOperations.Operation<AuthenticationCallback> operation = authenticationOperations.join(
+                InFlightOperations.key(publishableKey, tokenId, amountStr), callback);
+        leavingOnCancel(call, authenticationOperations, callback);
+        if (operation == null) {
+            mLogger.log(Logger.Level.DEBUG, "Joined an identical authentication in flight");
+            return call;
+        }
+
+        XenditFuture<Authentication> request = new XenditFuture<>();
+        cancelling(request, _createAuthentication(tokenId, amountStr, operation.idempotencyKey,
+                new NetworkHandler<Authentication>().setResultListener(completing(request))));
+
+        final XenditFuture<Authentication> result = new XenditFuture<>();
+        XenditFuture<Authentication> created = request.completingOn(XenditFuture.mainThreadExecutor());
+        result.cancelling(created);
+        created.addCallback(new XenditFuture.Callback<Authentication>() {
             @Override
             public void onSuccess(Authentication authentication) {
                 if (!authentication.getStatus().equalsIgnoreCase("VERIFIED")) {
-                    registerBroadcastReceiver(authenticationCallback);
-                    context.startActivity(XenditActivity.getLaunchIntent(context, authentication));
+                    unregisterOnCancel(result, authenticate(authentication, new AuthenticationBroadcastReceiver(settingAuthenticationCallback(result))));
                 } else {
-                    authenticationCallback.onSuccess(authentication);
+                    result.set(authentication);
                 }
                 mLogger.log(Logger.Level.DEBUG,  "Successfully created auth!");
             }
 
             @Override
-            public void onFailure(NetworkError error) {
-                mLogger.log(Logger.Level.ERROR,  error.responseCode + " " + error.getMessage());
-                authenticationCallback.onError(new XenditError(error));
+            public void onError(XenditError error) {
+                mLogger.log(Logger.Level.ERROR, "%s %s", error.getErrorCode(), error.getErrorMessage());
+                result.setError(error);
             }
-        }));
+        }, XenditFuture.directExecutor());
+
+        result.addCallback(callingBack(completingAuthentication(operation)), XenditFuture.directExecutor());
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    mLogger.log(Logger.Level.DEBUG, "Authentication cancelled");
+                    completingAuthentication(operation).onError(cancellationError());
+                }
+            }
+        }, XenditFuture.directExecutor());
+        startOperation(authenticationOperations, operation, result);
+        return call;
     }
 
     /**
@@ -370,12 +711,11 @@ public class Xendit {
             return;
         }
 
-        _createAuthentication(tokenId, amount, new NetworkHandler<Authentication>().setResultListener(new ResultListener<Authentication>() {
+        _createAuthentication(tokenId, amount, UUID.randomUUID().toString(), new NetworkHandler<Authentication>().setResultListener(new ResultListener<Authentication>() {
             @Override
             public void onSuccess(Authentication authentication) {
                 if (!authentication.getStatus().equalsIgnoreCase("VERIFIED")) {
-                    registerBroadcastReceiver(tokenCallback);
-                    context.startActivity(XenditActivity.getLaunchIntent(context, authentication));
+                    authenticate(authentication, new TokenBroadcastReceiver(tokenCallback));
                 } else {
                     tokenCallback.onSuccess(new Token(authentication));
                 }
@@ -384,27 +724,74 @@ public class Xendit {
 
             @Override
             public void onFailure(NetworkError error) {
-                mLogger.log(Logger.Level.ERROR,  error.responseCode + " " + error.getMessage());
+                mLogger.log(Logger.Level.ERROR, "%s %s", error.responseCode, error.getMessage());
                 tokenCallback.onError(new XenditError(error));
             }
         }));
     }
 
-    private void tokenizeCreditCardRequest(final TokenConfiguration tokenConfiguration, final Card card, final String amount, final boolean shouldAuthenticate, final boolean isMultipleUse, final TokenCallback tokenCallback) {
+    /**
+     * The Flex and token requests of a card once the configuration is known, each stage timed
+     */
+    private XenditFuture<Authentication> createCreditCardToken(TokenConfiguration tokenConfiguration, final Card card, String cardType, final String amount, final boolean shouldAuthenticate, final boolean isMultipleUse, final String idempotencyKey, final TokenizationTiming timing) {
+        return timed(TokenizationTiming.Stage.TOKENIZE_CARD, timing, tokenizeCard(tokenConfiguration, card, cardType, true))
+                .transformAsync(new XenditFuture.AsyncFunction<TokenCreditCard, Authentication>() {
+                    @Override
+                    public XenditFuture<Authentication> apply(TokenCreditCard tokenCreditCard) {
+                        mLogger.log(Logger.Level.DEBUG,  "Successfully tokenize credit card!");
+                        return timed(TokenizationTiming.Stage.CREATE_TOKEN, timing,
+                                createToken(card, tokenCreditCard.getToken(), amount, shouldAuthenticate, isMultipleUse, idempotencyKey));
+                    }
+                }, XenditFuture.directExecutor());
+    }
+
+    /**
+     * @param canRetry Whether a key error should drop the cached configuration and retry once
+     *                 with a fresh one
+     */
+    private XenditFuture<TokenCreditCard> tokenizeCard(TokenConfiguration tokenConfiguration, final Card card, final String cardType, final boolean canRetry) {
         mLogger.log(Logger.Level.INFO, "tokenizeCreditCardRequest");
-        tokenizeCreditCard(tokenConfiguration, card, new NetworkHandler<TokenCreditCard>().setResultListener(new ResultListener<TokenCreditCard>() {
+        final XenditFuture<TokenCreditCard> future = new XenditFuture<>();
+        BaseRequest<TokenCreditCard> request = tokenizeCreditCard(tokenConfiguration, card, cardType, new NetworkHandler<TokenCreditCard>().setResultListener(new ResultListener<TokenCreditCard>() {
             @Override
             public void onSuccess(TokenCreditCard tokenCreditCard) {
-                _createCreditCardToken(card, tokenCreditCard.getToken(), amount, shouldAuthenticate, isMultipleUse, tokenCallback);
-                mLogger.log(Logger.Level.DEBUG,  "Successfully tokenize credit card!");
+                future.set(tokenCreditCard);
             }
 
             @Override
             public void onFailure(NetworkError error) {
-                mLogger.log(Logger.Level.ERROR,  error.responseCode + " " + error.getMessage());
-                tokenCallback.onError(new XenditError(error));
+                mLogger.log(Logger.Level.ERROR, "%s %s", error.responseCode, error.getMessage());
+                if (isFlexKeyError(error)) {
+                    tokenConfigurationCache.invalidate();
+                    if (canRetry) {
+                        mLogger.log(Logger.Level.DEBUG, "Flex key rejected, refreshing tokenization configuration");
+                        future.setFuture(getCachedTokenizationConfiguration().transformAsync(new XenditFuture.AsyncFunction<TokenConfiguration, TokenCreditCard>() {
+                            @Override
+                            public XenditFuture<TokenCreditCard> apply(TokenConfiguration tokenConfiguration) {
+                                return tokenizeCard(tokenConfiguration, card, cardType, false);
+                            }
+                        }, XenditFuture.directExecutor()));
+                        return;
+                    }
+                }
+                future.setError(new XenditError(error));
             }
         }));
+        return cancelling(future, request);
+    }
+
+    /**
+     * Whether the flex API rejected the key of the tokenization configuration, in which case the
+     * cached configuration is outdated
+     */
+    private static boolean isFlexKeyError(NetworkError error) {
+        if (error instanceof AuthorisationError || error.responseCode == 401 || error.responseCode == 403) {
+            return true;
+        }
+        // the reason of a Flex responseStatus
+        ErrorResponse errorResponse = error.getErrorResponse();
+        String reason = errorResponse != null && errorResponse.getErrorCode() != null ? errorResponse.getErrorCode() : "";
+        return reason.toUpperCase(Locale.ROOT).contains("KEY");
     }
 
     /**
@@ -418,12 +805,11 @@ public class Xendit {
             return;
         }
 
-        _createToken(card, token, amount, true, isMultipleUse, new NetworkHandler<Authentication>().setResultListener(new ResultListener<Authentication>() {
+        _createToken(card, token, amount, true, isMultipleUse, UUID.randomUUID().toString(), new NetworkHandler<Authentication>().setResultListener(new ResultListener<Authentication>() {
             @Override
             public void onSuccess(Authentication authentication) {
                 if (!authentication.getStatus().equalsIgnoreCase("VERIFIED")) {
-                    registerBroadcastReceiver(tokenCallback);
-                    context.startActivity(XenditActivity.getLaunchIntent(context, authentication));
+                    authenticate(authentication, new TokenBroadcastReceiver(tokenCallback));
                 } else {
                     tokenCallback.onSuccess(new Token(authentication));
                 }
@@ -432,135 +818,495 @@ public class Xendit {
 
             @Override
             public void onFailure(NetworkError error) {
-                mLogger.log(Logger.Level.ERROR, error.responseCode + " " + error.getMessage());
+                mLogger.log(Logger.Level.ERROR, "%s %s", error.responseCode, error.getMessage());
                 tokenCallback.onError(new XenditError(error));
             }
         }));
     }
 
-    private void _createCreditCardToken(Card card, final String token, String amount, boolean shouldAuthenticate, boolean isMultipleUse, final TokenCallback tokenCallback) {
-        mLogger.log(Logger.Level.INFO, "createCreditCardToken");
-        _createToken(card, token, amount, shouldAuthenticate, isMultipleUse, new NetworkHandler<Authentication>().setResultListener(new ResultListener<Authentication>() {
+    /**
+     * Hands the token of authentication to the callers of operation on the main thread, after 3DS
+     * if needed
+     *
+     * @return The token, cancelling it cancels the requests in flight
+     */
+    private XenditFuture<Token> deliverToken(XenditFuture<Authentication> authentication, final TokenizationTiming timing, final InFlightOperations.Operation<TokenCallback> operation) {
+        final XenditFuture<Token> token = new XenditFuture<>();
+        XenditFuture<Authentication> created = authentication.completingOn(XenditFuture.mainThreadExecutor());
+        token.cancelling(created);
+        created.addCallback(new XenditFuture.Callback<Authentication>() {
             @Override
             public void onSuccess(Authentication authentication) {
+                reportTiming(timing);
                 if (!authentication.getStatus().equalsIgnoreCase("VERIFIED")) {
-                    registerBroadcastReceiver(tokenCallback);
-                    context.startActivity(XenditActivity.getLaunchIntent(context, authentication));
+                    unregisterOnCancel(token, authenticate(authentication, new TokenBroadcastReceiver(settingTokenCallback(token))));
                 } else {
-                    tokenCallback.onSuccess(new Token(authentication));
+                    token.set(new Token(authentication));
                 }
                 mLogger.log(Logger.Level.DEBUG,  "Successfully created token!");
             }
 
             @Override
-            public void onFailure(NetworkError error) {
-                mLogger.log(Logger.Level.ERROR,  error.responseCode + " " + error.getMessage());
-                tokenCallback.onError(new XenditError(error));
+            public void onError(XenditError error) {
+                reportTiming(timing);
+                mLogger.log(Logger.Level.ERROR, "%s %s", error.getErrorCode(), error.getErrorMessage());
+                token.setError(error);
             }
-        }));
+        }, XenditFuture.directExecutor());
+
+        token.addCallback(callingBack(completingTokenCreation(operation)), XenditFuture.directExecutor());
+        token.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (token.isCancelled()) {
+                    mLogger.log(Logger.Level.DEBUG, "Token creation cancelled");
+                    completingTokenCreation(operation).onError(cancellationError());
+                }
+            }
+        }, XenditFuture.directExecutor());
+        return token;
     }
 
-    private void registerBroadcastReceiver(final AuthenticationCallback authenticationCallback) {
-        mLogger.log(Logger.Level.INFO, "registerBroadcastReceiver");
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
+    /**
+     * Times stage from now until future is done
+     */
+    private static <T> XenditFuture<T> timed(final TokenizationTiming.Stage stage, final TokenizationTiming timing, XenditFuture<T> future) {
+        timing.start(stage);
+        future.addListener(new Runnable() {
             @Override
             public void run() {
-                context.registerReceiver(new AuthenticationBroadcastReceiver(authenticationCallback), new IntentFilter(ACTION_KEY));
+                timing.end(stage);
             }
-        });
+        }, XenditFuture.directExecutor());
+        return future;
+    }
+
+    private void reportTiming(TokenizationTiming timing) {
+        timing.finish();
+        mLogger.log(Logger.Level.DEBUG, "%s", timing);
+        TokenizationTiming.Listener listener = tokenizationTimingListener;
+        if (listener != null) {
+            listener.onTiming(timing);
+        }
+    }
+
+    /**
+     * @return A callback calling tokenCallback on the main thread, for results that may arrive on
+     * a network thread
+     */
+    private static TokenCallback onMainThread(final TokenCallback tokenCallback) {
+        return new TokenCallback() {
+            @Override
+            public void onSuccess(final Token token) {
+                XenditFuture.mainThreadExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        tokenCallback.onSuccess(token);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final XenditError error) {
+                XenditFuture.mainThreadExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        tokenCallback.onError(error);
+                    }
+                });
+            }
+        };
+    }
+
+    private static AuthenticationCallback settingAuthenticationCallback(final XenditFuture<Authentication> future) {
+        return new AuthenticationCallback() {
+            @Override
+            public void onSuccess(Authentication authentication) {
+                future.set(authentication);
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                future.setError(error);
+            }
+        };
+    }
+
+    private static TokenCallback settingTokenCallback(final XenditFuture<Token> future) {
+        return new TokenCallback() {
+            @Override
+            public void onSuccess(Token token) {
+                future.set(token);
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                future.setError(error);
+            }
+        };
     }
 
-    private void registerBroadcastReceiver(final TokenCallback tokenCallback) {
-        mLogger.log(Logger.Level.INFO, "registerBroadcastReceiver");
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
+    /**
+     * @return A callback handing the result to every caller that joined operation
+     */
+    private static TokenCallback completingTokenCreation(final InFlightOperations.Operation<TokenCallback> operation) {
+        return new TokenCallback() {
+            @Override
+            public void onSuccess(Token token) {
+                for (TokenCallback callback : tokenOperations.complete(operation)) {
+                    callback.onSuccess(token);
+                }
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                for (TokenCallback callback : tokenOperations.complete(operation)) {
+                    callback.onError(error);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return A callback handing the result to every caller that joined operation
+     */
+    private static AuthenticationCallback completingAuthentication(final InFlightOperations.Operation<AuthenticationCallback> operation) {
+        return new AuthenticationCallback() {
+            @Override
+            public void onSuccess(Authentication authentication) {
+                for (AuthenticationCallback callback : authenticationOperations.complete(operation)) {
+                    callback.onSuccess(authentication);
+                }
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                for (AuthenticationCallback callback : authenticationOperations.complete(operation)) {
+                    callback.onError(error);
+                }
+            }
+        };
+    }
+
+    /**
+     * Joins call to the token creation of operationKey, call leaves it once cancelled
+     *
+     * @return The operation to start, or null if call joined one in flight
+     */
+    private static InFlightOperations.Operation<TokenCallback> joinTokenCreation(String operationKey, XenditFuture<Token> call) {
+        TokenCallback callback = settingTokenCallback(call);
+        InFlightOperations.Operation<TokenCallback> operation = tokenOperations.join(operationKey, callback);
+        leavingOnCancel(call, tokenOperations, callback);
+        return operation;
+    }
+
+    /**
+     * Removes callback from its operation once call is cancelled, and cancels the operation if no
+     * other call awaits it
+     */
+    private static <C> void leavingOnCancel(final XenditFuture<?> call, final InFlightOperations<C> operations, final C callback) {
+        call.addListener(new Runnable() {
             @Override
             public void run() {
-                context.registerReceiver(new TokenBroadcastReceiver(tokenCallback), new IntentFilter(ACTION_KEY));
+                if (call.isCancelled()) {
+                    Future<?> operation = operations.leave(callback);
+                    if (operation != null) {
+                        operation.cancel(false);
+                    }
+                }
             }
-        });
+        }, XenditFuture.directExecutor());
+    }
+
+    /**
+     * Hands future, the result of operation, to its callers, which may all have left already
+     */
+    private static <C> void startOperation(InFlightOperations<C> operations, InFlightOperations.Operation<C> operation, XenditFuture<?> future) {
+        if (!operations.start(operation, future)) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * The error of the calls still awaiting an operation that was cancelled
+     */
+    private static XenditError cancellationError() {
+        return new XenditError("REQUEST_CANCELLED_ERROR", "The request was cancelled");
+    }
+
+    private static XenditFuture.Callback<Token> callingBack(final TokenCallback tokenCallback) {
+        return new XenditFuture.Callback<Token>() {
+            @Override
+            public void onSuccess(Token token) {
+                tokenCallback.onSuccess(token);
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                tokenCallback.onError(error);
+            }
+        };
+    }
+
+    private static XenditFuture.Callback<Authentication> callingBack(final AuthenticationCallback authenticationCallback) {
+        return new XenditFuture.Callback<Authentication>() {
+            @Override
+            public void onSuccess(Authentication authentication) {
+                authenticationCallback.onSuccess(authentication);
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                authenticationCallback.onError(error);
+            }
+        };
+    }
+
+    /**
+     * Opens the 3DS screen of authentication, its result goes straight to receiver. If the screen
+     * cannot be opened, receiver gets the result of a screen closed without one right away.
+     *
+     * @return The id receiver is registered under
+     */
+    private String authenticate(Authentication authentication, AuthenticationResults.Receiver receiver) {
+        String resultId = AuthenticationResults.register(receiver);
+        mLogger.log(Logger.Level.INFO, "Opening 3DS screen %s", resultId);
+        try {
+            context.startActivity(XenditActivity.getLaunchIntent(context, authentication, resultId));
+        } catch (RuntimeException e) {
+            mLogger.log(Logger.Level.ERROR, "Could not open 3DS screen: %s", e.getMessage());
+            AuthenticationResults.deliver(resultId, context, context.getString(R.string.tokenization_error));
+        }
+        return resultId;
+    }
+
+    /**
+     * Drops the 3DS result registered under resultId once future is cancelled
+     */
+    private static void unregisterOnCancel(final XenditFuture<?> future, final String resultId) {
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isCancelled()) {
+                    AuthenticationResults.unregister(resultId);
+                }
+            }
+        }, XenditFuture.directExecutor());
+    }
+
+    /**
+     * Delivers the tokenization configuration from the cache when possible. A stale configuration
+     * is delivered right away and refreshed in the background.
+     *
+     * @return The request fetching the configuration, or null if it was delivered from the cache
+     */
+    private BaseRequest<TokenConfiguration> getCachedTokenizationConfiguration(final ResultListener<TokenConfiguration> listener) {
+        TokenConfigurationCache.Entry entry = tokenConfigurationCache.get();
+        if (entry != null) {
+            if (tokenConfigurationCache.isStale(entry) && tokenConfigurationCache.startRefresh()) {
+                mLogger.log(Logger.Level.DEBUG, "Refreshing stale tokenization configuration");
+                BaseRequest<TokenConfiguration> refresh = getTokenizationConfiguration(new NetworkHandler<TokenConfiguration>().setResultListener(new ResultListener<TokenConfiguration>() {
+                    @Override
+                    public void onSuccess(TokenConfiguration tokenConfiguration) {
+                        tokenConfigurationCache.put(tokenConfiguration);
+                        tokenConfigurationCache.finishRefresh();
+                    }
+
+                    @Override
+                    public void onFailure(NetworkError error) {
+                        mLogger.log(Logger.Level.ERROR, error.getMessage());
+                        tokenConfigurationCache.finishRefresh();
+                    }
+                }));
+                // shared by every instance, a cancelled refresh would never finish
+                refresh.setTag(null);
+            }
+            listener.onSuccess(entry.getTokenConfiguration());
+            return null;
+        }
+
+        return getTokenizationConfiguration(new NetworkHandler<TokenConfiguration>().setResultListener(new ResultListener<TokenConfiguration>() {
+            @Override
+            public void onSuccess(TokenConfiguration tokenConfiguration) {
+                tokenConfigurationCache.put(tokenConfiguration);
+                listener.onSuccess(tokenConfiguration);
+            }
+
+            @Override
+            public void onFailure(NetworkError error) {
+                listener.onFailure(error);
+            }
+        }));
+    }
+
+    private XenditFuture<TokenConfiguration> getCachedTokenizationConfiguration() {
+        XenditFuture<TokenConfiguration> future = new XenditFuture<>();
+        return cancelling(future, getCachedTokenizationConfiguration(completing(future)));
     }
 
-    private void getTokenizationConfiguration(NetworkHandler<TokenConfiguration> handler) {
+    private BaseRequest<TokenConfiguration> getTokenizationConfiguration(NetworkHandler<TokenConfiguration> handler) {
         mLogger.log(Logger.Level.INFO, "getTokenizationConfiguration");
-        String encodedKey = encodeBase64(publishableKey + ":");
-        String basicAuthCredentials = "Basic " + encodedKey;
-        BaseRequest request = new BaseRequest<>(Request.Method.GET, GET_TOKEN_CONFIGURATION_URL, TokenConfiguration.class, new DefaultResponseHandler<>(handler));
-        request.addHeader("Authorization", basicAuthCredentials.replace("\n", ""));
+        BaseRequest<TokenConfiguration> request = newXenditRequest(Endpoint.TOKEN_CONFIGURATION, Request.Method.GET, GET_TOKEN_CONFIGURATION_URL, TokenConfiguration.class, handler);
+        // the listeners only cache it and send the Flex request
+        request.setDeliveredOnNetworkThread(true);
         sendRequest(request, handler);
+        return request;
     }
 
-    private void tokenizeCreditCard(TokenConfiguration tokenConfig, Card card, NetworkHandler<TokenCreditCard> handler) {
+    private BaseRequest<TokenCreditCard> tokenizeCreditCard(TokenConfiguration tokenConfig, final Card card, final String cardType, NetworkHandler<TokenCreditCard> handler) {
         mLogger.log(Logger.Level.INFO, "tokenizeCreditCard");
         String baseUrl = getEnvironment() ? tokenConfig.getFlexProductionUrl() : tokenConfig.getFlexDevelopmentUrl();
         String flexUrl = baseUrl + TOKENIZE_CREDIT_CARD_URL + tokenConfig.getFlexApiKey();
 
-        BaseRequest request = new BaseRequest<>(Request.Method.POST, flexUrl, TokenCreditCard.class, new DefaultResponseHandler<>(handler));
-
-        JsonObject cardInfoJson = new JsonObject();
-        cardInfoJson.addProperty("cardNumber", card.getCreditCardNumber());
-        cardInfoJson.addProperty("cardExpirationMonth", card.getCardExpirationMonth());
-        cardInfoJson.addProperty("cardExpirationYear", card.getCardExpirationYear());
-        try {
-            cardInfoJson.addProperty("cardType", CardValidator.getCardType(card.getCreditCardNumber()).getCardTypeKey());
-        } catch (NullPointerException e) {
-            mLogger.log(Logger.Level.ERROR, e.getMessage());
-            e.printStackTrace();
-            handler.handleError(new NetworkError(new VolleyError(e.getMessage(), e.getCause())));
-        }
+        BaseRequest<TokenCreditCard> request = new BaseRequest<>(Request.Method.POST, flexUrl, TokenCreditCard.class, new DefaultResponseHandler<>(handler));
+        request.setTag(requestTag);
+        request.setRetrySettings(getRetrySettings(Endpoint.TOKENIZE_CARD));
+        // the token request is sent right from the network thread
+        request.setDeliveredOnNetworkThread(true);
 
-        request.addParam("keyId", tokenConfig.getTokenizationAuthKeyId());
-        request.addJsonParam("cardInfo", cardInfoJson);
+        final String keyId = tokenConfig.getTokenizationAuthKeyId();
+        request.setBody(JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("keyId").value(keyId);
+                writer.name("cardInfo").beginObject();
+                writer.name("cardNumber").value(card.getCreditCardNumber());
+                writer.name("cardExpirationMonth").value(card.getCardExpirationMonth());
+                writer.name("cardExpirationYear").value(card.getCardExpirationYear());
+                writer.name("cardType").value(cardType);
+                writer.endObject();
+            }
+        }));
         sendRequest(request, handler);
+        return request;
     }
 
-    private void _createToken(Card card, String token, String amount, boolean shouldAuthenticate, boolean isMultipleUse, NetworkHandler<Authentication> handler) {
+    private BaseRequest<Authentication> _createToken(final Card card, final String token, final String amount, final boolean shouldAuthenticate, final boolean isMultipleUse, String idempotencyKey, NetworkHandler<Authentication> handler) {
         mLogger.log(Logger.Level.INFO, "_createToken");
-        String encodedKey = encodeBase64(publishableKey + ":");
-        String basicAuthCredentials = "Basic " + encodedKey;
-
-        BaseRequest request = new BaseRequest<>(Request.Method.POST, CREATE_CREDIT_CARD_URL, Authentication.class, new DefaultResponseHandler<>(handler));
-        request.addHeader("Authorization", basicAuthCredentials.replace("\n", ""));
-        request.addParam("is_authentication_bundled", String.valueOf(!isMultipleUse));
-        request.addParam("should_authenticate", String.valueOf(shouldAuthenticate));
-        request.addParam("credit_card_token", token);
-        request.addParam("card_cvn", card.getCreditCardCVN());
-
-        if (!isMultipleUse) {
-            request.addParam("amount", amount);
-        }
+        BaseRequest<Authentication> request = newXenditRequest(Endpoint.CREATE_TOKEN, Request.Method.POST, CREATE_CREDIT_CARD_URL, Authentication.class, handler);
+        request.addHeader(BaseRequest.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        request.setBody(JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("is_authentication_bundled").value(String.valueOf(!isMultipleUse));
+                writer.name("should_authenticate").value(String.valueOf(shouldAuthenticate));
+                writer.name("credit_card_token").value(token);
+                writer.name("card_cvn").value(card.getCreditCardCVN());
+                if (!isMultipleUse) {
+                    writer.name("amount").value(amount);
+                }
+            }
+        }));
 
         sendRequest(request, handler);
+        return request;
+    }
+
+    private XenditFuture<Authentication> createToken(Card card, String token, String amount, boolean shouldAuthenticate, boolean isMultipleUse, String idempotencyKey) {
+        XenditFuture<Authentication> future = new XenditFuture<>();
+        return cancelling(future, _createToken(card, token, amount, shouldAuthenticate, isMultipleUse, idempotencyKey,
+                new NetworkHandler<Authentication>().setResultListener(completing(future))));
     }
 
-    private void _createAuthentication(String tokenId, String amount, NetworkHandler<Authentication> handler) {
+    private BaseRequest<Authentication> _createAuthentication(String tokenId, final String amount, String idempotencyKey, NetworkHandler<Authentication> handler) {
         mLogger.log(Logger.Level.INFO, "_createAuthentication");
-        String encodedKey = encodeBase64(publishableKey + ":");
-        String basicAuthCredentials = "Basic " + encodedKey;
         String requestUrl = CREATE_CREDIT_CARD_URL + "/" + tokenId + "/authentications";
 
-        BaseRequest request = new BaseRequest<>(Request.Method.POST, requestUrl , Authentication.class, new DefaultResponseHandler<>(handler));
-        request.addHeader("Authorization", basicAuthCredentials.replace("\n", ""));
-        request.addParam("amount", amount);
+        BaseRequest<Authentication> request = newXenditRequest(Endpoint.CREATE_AUTHENTICATION, Request.Method.POST, requestUrl, Authentication.class, handler);
+        request.addHeader(BaseRequest.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        request.setBody(JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("amount").value(amount);
+            }
+        }));
         sendRequest(request, handler);
+        return request;
     }
 
-    private String encodeBase64(String key) {
-        mLogger.log(Logger.Level.INFO, "encodeBase64");
-        try {
-            byte[] keyData = key.getBytes("UTF-8");
-            return Base64.encodeToString(keyData, Base64.DEFAULT);
-        } catch (UnsupportedEncodingException e) {
-            mLogger.log(Logger.Level.ERROR, e.getCause() + " " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * @return A listener completing future with the result of a request
+     */
+    private static <T> ResultListener<T> completing(final XenditFuture<T> future) {
+        return new ResultListener<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.set(result);
+            }
+
+            @Override
+            public void onFailure(NetworkError error) {
+                future.setError(new XenditError(error));
+            }
+        };
+    }
+
+    /**
+     * Cancels request, and with it its network call, once future is cancelled. The request is
+     * then only cancelled with future, not by {@link #cancelAll()}, as future may be awaited by
+     * the calls of other instances.
+     *
+     * @param request The request completing future, null if it completed without one
+     */
+    private static <T> XenditFuture<T> cancelling(final XenditFuture<T> future, final Request<?> request) {
+        if (request != null) {
+            request.setTag(null);
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isCancelled()) {
+                        request.cancel();
+                    }
+                }
+            }, XenditFuture.directExecutor());
         }
-        return null;
+        return future;
+    }
+
+    /**
+     * Keeps operation cancellable by {@link #cancelAll()} until it is done
+     */
+    private <T> XenditFuture<T> track(final XenditFuture<T> operation) {
+        operations.add(operation);
+        operation.addListener(new Runnable() {
+            @Override
+            public void run() {
+                operations.remove(operation);
+            }
+        }, XenditFuture.directExecutor());
+        return operation;
+    }
+
+    /**
+     * Creates a request to the Xendit API carrying the Authorization header of the publishable key
+     */
+    private <T> BaseRequest<T> newXenditRequest(Endpoint endpoint, int method, String url, Class<T> type, NetworkHandler<T> handler) {
+        BaseRequest<T> request = new BaseRequest<>(method, url, type, new DefaultResponseHandler<>(handler));
+        request.setTag(requestTag);
+        request.setHeaders(authorizationHeaders);
+        request.setRetrySettings(getRetrySettings(endpoint));
+        return request;
+    }
+
+    private RetrySettings getRetrySettings(Endpoint endpoint) {
+        RetrySettings settings = retrySettings.get(endpoint);
+        return settings != null ? settings : RetrySettings.DEFAULT;
+    }
+
+    /**
+     * @return The headers of every Xendit API request, computed once per publishable key
+     */
+    private static Map<String, String> createAuthorizationHeaders(String publishableKey) {
+        byte[] keyData = (publishableKey + ":").getBytes(Charset.forName("UTF-8"));
+        String basicAuthCredentials = "Basic " + Base64.encodeToString(keyData, Base64.NO_WRAP);
+        return Collections.singletonMap("Authorization", basicAuthCredentials);
     }
 
     private void sendRequest(BaseRequest request, NetworkHandler<?> handler) {
         mLogger.log(Logger.Level.INFO, "sendRequest");
         if (isConnectionAvailable()) {
             mLogger.log(Logger.Level.DEBUG, "Connected!");
-            requestQueue.add(request);
+            HttpTransport.getRequestQueue(context).add(request);
         } else if (handler != null) {
             mLogger.log(Logger.Level.ERROR, new ConnectionError().getMessage());
             handler.handleError(new ConnectionError());
@@ -570,7 +1316,7 @@ public class Xendit {
     private boolean isConnectionAvailable() {
         mLogger.log(Logger.Level.INFO, "isConnectionAvailable");
         if (PermissionUtils.hasPermission(context, Manifest.permission.ACCESS_NETWORK_STATE)) {
-            @SuppressLint("MissingPermission") NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+            @SuppressLint("MissingPermission") NetworkInfo activeNetwork = getConnectivityManager().getActiveNetworkInfo();
             mLogger.log(Logger.Level.DEBUG, "Had access network state");
             return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
         } else {
@@ -580,9 +1326,16 @@ public class Xendit {
 
     }
 
+    private ConnectivityManager getConnectivityManager() {
+        if (connectivityManager == null) {
+            connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        }
+        return connectivityManager;
+    }
+
     private boolean getEnvironment() {
         mLogger.log(Logger.Level.INFO, "getEnvironment");
-        String publishKey = publishableKey.toUpperCase();
+        String publishKey = publishableKey.toUpperCase(Locale.ROOT);
         return publishKey.contains("PRODUCTION");
     }
 
@@ -592,7 +1345,7 @@ public class Xendit {
      * Method that will filter that only exception that are generated with our library
      * are sent to sentry
      */
-    private void shouldSendException() {
+    private static void shouldSendException() {
         SentryClient client = Sentry.getStoredClient();
 
         client.addShouldSendEventCallback(new ShouldSendEventCallback() {
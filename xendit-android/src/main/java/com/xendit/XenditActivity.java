@@ -22,9 +22,17 @@ public class XenditActivity extends Activity {
 
     public static final String MESSAGE_KEY = "message_key";
     private static final String AUTHENTICATION_KEY = "authentication_key";
+    private static final String RESULT_ID_KEY = "result_id_key";
 
     private ProgressBar progressBar;
-
+    // keeps the receiver registered under resultId alive while the 3DS screen is shown
+    private AuthenticationResults.Receiver receiver;
+    private String resultId;
+    private boolean resultDelivered;
+
+    /**
+     * Opens the 3DS screen, its result is sent as a broadcast with action {@link Xendit#ACTION_KEY}
+     */
     public static Intent getLaunchIntent(Context context, Authentication authentication) {
         Intent intent = new Intent(context, XenditActivity.class);
         intent.setClass(context, XenditActivity.class);
@@ -34,6 +42,13 @@ public class XenditActivity extends Activity {
         return intent;
     }
 
+    /**
+     * Opens the 3DS screen, its result goes to the receiver registered under resultId
+     */
+    static Intent getLaunchIntent(Context context, Authentication authentication, String resultId) {
+        return getLaunchIntent(context, authentication).putExtra(RESULT_ID_KEY, resultId);
+    }
+
     @SuppressLint({"AddJavascriptInterface", "SetJavaScriptEnabled"})
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -41,6 +56,12 @@ public class XenditActivity extends Activity {
 
         setContentView(R.layout.activity_xendit);
 
+        resultId = getIntent().getStringExtra(RESULT_ID_KEY);
+        if (resultId != null) {
+            Object retained = getLastNonConfigurationInstance();
+            receiver = retained != null ? (AuthenticationResults.Receiver) retained : AuthenticationResults.claim(resultId);
+        }
+
         Authentication authentication = getIntent().getParcelableExtra(AUTHENTICATION_KEY);
         WebView webView = findViewById(R.id.webView_XenditActivity);
         progressBar = findViewById(R.id.progressBar_XenditActivity);
@@ -85,16 +106,49 @@ public class XenditActivity extends Activity {
     private class WebViewJavaScriptInterface {
 
         @android.webkit.JavascriptInterface
-        public void postMessage(String message) {
-            sendBroadcastReceiver(message);
-            finish();
+        public void postMessage(final String message) {
+            // called on the JavaBridge thread, receivers expect the main thread
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    deliverResult(message);
+                    finish();
+                }
+            });
         }
     }
 
     @Override
     public void onBackPressed() {
         super.onBackPressed();
-        sendBroadcastReceiver(getString(R.string.tokenization_error));
+        deliverResult(getString(R.string.tokenization_error));
+    }
+
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return receiver;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (isFinishing()) {
+            // closed without a result, e.g. from the recent apps, the call must not wait forever
+            deliverResult(getString(R.string.tokenization_error));
+        }
+    }
+
+    private void deliverResult(String message) {
+        if (resultDelivered) {
+            return;
+        }
+        resultDelivered = true;
+        if (resultId != null) {
+            AuthenticationResults.deliver(resultId, getApplicationContext(), message);
+            receiver = null;
+        } else {
+            sendBroadcastReceiver(message);
+        }
     }
 
     private void sendBroadcastReceiver(String message) {
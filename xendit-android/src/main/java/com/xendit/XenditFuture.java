@@ -0,0 +1,511 @@
+package com.xendit;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.xendit.Models.XenditError;
+import com.xendit.Models.XenditException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The result of an asynchronous SDK call, succeeding with a value or failing with a
+ * {@link XenditError}.
+ *
+ * Futures compose without nesting callbacks: {@link #transform} and {@link #transformAsync} run
+ * the next step once this one succeeded, {@link #allOf} combines calls made in parallel, and
+ * {@link #withTimeout} bounds the wait. Every step runs on the executor it is given, e.g.
+ * {@link #directExecutor()} to run it on the thread that completed the previous step without a
+ * thread hop. Cancelling a composed future cancels the steps it waits for.
+ *
+ * <pre>
+ * xendit.createMultipleUseToken(card)
+ *         .withTimeout(30, TimeUnit.SECONDS)
+ *         .addCallback(new XenditFuture.Callback&lt;Token&gt;() { ... }, XenditFuture.mainThreadExecutor());
+ * </pre>
+ *
+ * @param <T> Type of the result
+ */
+public final class XenditFuture<T> implements Future<T> {
+
+    public interface Callback<T> {
+        void onSuccess(T result);
+
+        void onError(XenditError error);
+    }
+
+    public interface Function<A, B> {
+        B apply(A input);
+    }
+
+    public interface AsyncFunction<A, B> {
+        XenditFuture<B> apply(A input);
+    }
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    /**
+     * Error code of a transformed future whose function threw
+     */
+    public static final String FUNCTION_ERROR = "FUNCTION_ERROR";
+
+    // guarded by this
+    private int state = PENDING;
+    private T result;
+    private XenditError error;
+    private List<Runnable> listeners = new ArrayList<>(2);
+
+    XenditFuture() {
+    }
+
+    /**
+     * @return A future that already succeeded with result
+     */
+    public static <T> XenditFuture<T> succeeded(T result) {
+        XenditFuture<T> future = new XenditFuture<>();
+        future.set(result);
+        return future;
+    }
+
+    /**
+     * @return A future that already failed with error
+     */
+    public static <T> XenditFuture<T> failed(XenditError error) {
+        XenditFuture<T> future = new XenditFuture<>();
+        future.setError(error);
+        return future;
+    }
+
+    boolean set(T result) {
+        return complete(SUCCEEDED, result, null);
+    }
+
+    boolean setError(XenditError error) {
+        return complete(FAILED, null, error);
+    }
+
+    /**
+     * Completes this future like source, and cancels source if this future is cancelled first
+     */
+    void setFuture(final XenditFuture<? extends T> source) {
+        source.addListener(new Runnable() {
+            @Override
+            public void run() {
+                copyFrom(source);
+            }
+        }, directExecutor());
+        cancelling(source);
+    }
+
+    private boolean complete(int newState, T result, XenditError error) {
+        List<Runnable> completed;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            state = newState;
+            this.result = result;
+            this.error = error;
+            completed = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        // a throwing listener, e.g. a callback of the app, must not skip the others
+        RuntimeException thrown = null;
+        for (Runnable listener : completed) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                if (thrown == null) {
+                    thrown = e;
+                }
+            }
+        }
+        if (thrown != null) {
+            throw thrown;
+        }
+        return true;
+    }
+
+    private void copyFrom(XenditFuture<? extends T> source) {
+        int sourceState;
+        T sourceResult;
+        XenditError sourceError;
+        // read under the lock of source, completed outside it since listeners run on completion
+        synchronized (source) {
+            sourceState = source.state;
+            sourceResult = source.result;
+            sourceError = source.error;
+        }
+        if (sourceState == SUCCEEDED) {
+            set(sourceResult);
+        } else if (sourceState == FAILED) {
+            setError(sourceError);
+        } else {
+            cancel(false);
+        }
+    }
+
+    /**
+     * Cancels upstream, a future this one waits for, once this one is cancelled
+     */
+    void cancelling(final XenditFuture<?> upstream) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (isCancelled()) {
+                    upstream.cancel(false);
+                }
+            }
+        }, directExecutor());
+    }
+
+    /**
+     * @return A future completing like this one, but on executor. Cancelling it before then drops
+     * the result even if this one already completed.
+     */
+    XenditFuture<T> completingOn(Executor executor) {
+        final XenditFuture<T> output = new XenditFuture<>();
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                output.copyFrom(XenditFuture.this);
+            }
+        }, executor);
+        output.cancelling(this);
+        return output;
+    }
+
+    /**
+     * Cancels the call, its callbacks are not called. Requests still in flight for it are
+     * cancelled too.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return complete(CANCELLED, null, null);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * Blocks until the result is available, never call it on the main thread
+     *
+     * @throws ExecutionException With a {@link XenditException} cause if the call failed
+     */
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return getDone();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return getDone();
+    }
+
+    private T getDone() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        }
+        if (state == FAILED) {
+            throw new ExecutionException(new XenditException(error));
+        }
+        return result;
+    }
+
+    /**
+     * Runs listener on executor once the future is done, right away if it already is
+     */
+    public void addListener(final Runnable listener, final Executor executor) {
+        Runnable execution = new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(listener);
+            }
+        };
+        synchronized (this) {
+            if (state == PENDING) {
+                listeners.add(execution);
+                return;
+            }
+        }
+        execution.run();
+    }
+
+    /**
+     * Calls callback on executor once the call succeeded or failed, not if it was cancelled
+     */
+    public void addCallback(final Callback<? super T> callback, Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                int state;
+                T result;
+                XenditError error;
+                synchronized (XenditFuture.this) {
+                    state = XenditFuture.this.state;
+                    result = XenditFuture.this.result;
+                    error = XenditFuture.this.error;
+                }
+                if (state == SUCCEEDED) {
+                    callback.onSuccess(result);
+                } else if (state == FAILED) {
+                    callback.onError(error);
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * @return A future of function applied on executor to the result of this one
+     */
+    public <R> XenditFuture<R> transform(final Function<? super T, ? extends R> function, Executor executor) {
+        final XenditFuture<R> output = new XenditFuture<>();
+        addCallback(new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                R transformed;
+                try {
+                    transformed = function.apply(result);
+                } catch (RuntimeException e) {
+                    output.setError(functionError(e));
+                    return;
+                }
+                output.set(transformed);
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                output.setError(error);
+            }
+        }, executor);
+        propagateCancellation(output);
+        return output;
+    }
+
+    /**
+     * @return A future of the call started by function on executor with the result of this one
+     */
+    public <R> XenditFuture<R> transformAsync(final AsyncFunction<? super T, R> function, Executor executor) {
+        final XenditFuture<R> output = new XenditFuture<>();
+        addCallback(new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                XenditFuture<R> next;
+                try {
+                    next = function.apply(result);
+                } catch (RuntimeException e) {
+                    output.setError(functionError(e));
+                    return;
+                }
+                if (next == null) {
+                    output.setError(new XenditError(FUNCTION_ERROR, "The async function returned null instead of a future"));
+                    return;
+                }
+                output.setFuture(next);
+            }
+
+            @Override
+            public void onError(XenditError error) {
+                output.setError(error);
+            }
+        }, executor);
+        propagateCancellation(output);
+        return output;
+    }
+
+    private static XenditError functionError(RuntimeException e) {
+        return new XenditError(FUNCTION_ERROR, "The function threw " + e);
+    }
+
+    /**
+     * Links this future and output, the step in between, both ways: output is cancelled with
+     * this future and cancels it
+     */
+    private void propagateCancellation(final XenditFuture<?> output) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (isCancelled()) {
+                    output.cancel(false);
+                }
+            }
+        }, directExecutor());
+        output.cancelling(this);
+    }
+
+    /**
+     * @return A future failing with a REQUEST_TIMEOUT_ERROR if this one is not done within
+     * timeout, in which case this one is cancelled
+     */
+    public XenditFuture<T> withTimeout(final long timeout, final TimeUnit unit) {
+        final XenditFuture<T> output = new XenditFuture<>();
+        output.setFuture(this);
+        final ScheduledFuture<?> timer = Timer.SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (output.setError(new XenditError("REQUEST_TIMEOUT_ERROR", "Timed out after " + unit.toMillis(timeout) + " ms"))) {
+                    cancel(false);
+                }
+            }
+        }, timeout, unit);
+        output.addListener(new Runnable() {
+            @Override
+            public void run() {
+                Timer.cancel(timer);
+            }
+        }, directExecutor());
+        return output;
+    }
+
+    /**
+     * @return A future of the results of futures in their order, failing with the first error.
+     * Cancelling it cancels every future.
+     */
+    public static <T> XenditFuture<List<T>> allOf(List<? extends XenditFuture<? extends T>> futures) {
+        final XenditFuture<List<T>> output = new XenditFuture<>();
+        final List<XenditFuture<? extends T>> inputs = new ArrayList<>(futures);
+        if (inputs.isEmpty()) {
+            output.set(Collections.<T>emptyList());
+            return output;
+        }
+        final AtomicInteger remaining = new AtomicInteger(inputs.size());
+        for (final XenditFuture<? extends T> input : inputs) {
+            input.addCallback(new Callback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    if (remaining.decrementAndGet() == 0) {
+                        List<T> results = new ArrayList<>(inputs.size());
+                        for (XenditFuture<? extends T> done : inputs) {
+                            synchronized (done) {
+                                results.add(done.result);
+                            }
+                        }
+                        output.set(results);
+                    }
+                }
+
+                @Override
+                public void onError(XenditError error) {
+                    output.setError(error);
+                }
+            }, directExecutor());
+            input.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (input.isCancelled()) {
+                        output.cancel(false);
+                    }
+                }
+            }, directExecutor());
+            output.cancelling(input);
+        }
+        return output;
+    }
+
+    /**
+     * @return An executor running tasks on the calling thread, e.g. the thread completing a future
+     */
+    public static Executor directExecutor() {
+        return DirectExecutor.INSTANCE;
+    }
+
+    /**
+     * @return An executor running tasks on the main thread, right away when called on it
+     */
+    public static Executor mainThreadExecutor() {
+        return MainThreadExecutor.INSTANCE;
+    }
+
+    private enum DirectExecutor implements Executor {
+        INSTANCE;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private static final class MainThreadExecutor implements Executor {
+        static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                command.run();
+            } else {
+                handler.post(command);
+            }
+        }
+    }
+
+    /**
+     * Created on the first timeout only
+     */
+    private static final class Timer {
+        static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+        /**
+         * Cancels timer, scheduled on SCHEDULER, and drops it from the queue
+         */
+        static void cancel(ScheduledFuture<?> timer) {
+            timer.cancel(false);
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+                SCHEDULER.purge();
+            }
+        }
+
+        private static ScheduledThreadPoolExecutor createScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "xendit-timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // a timer cancelled once its future completed would otherwise keep the future chain
+            // queued until the whole timeout elapsed, older versions purge on cancel instead
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                scheduler.setRemoveOnCancelPolicy(true);
+            }
+            return scheduler;
+        }
+    }
+}
@@ -8,21 +8,24 @@ import com.android.volley.Response;
 import com.android.volley.RetryPolicy;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.HttpHeaderParser;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.stream.JsonReader;
 import com.xendit.Logger.Logger;
+import com.xendit.Models.ModelGson;
 import com.xendit.network.errors.NetworkError;
 import com.xendit.network.interfaces.TokenExpiredListener;
+import com.xendit.utils.ByteArrayReader;
 
-import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
 
 import static com.xendit.Xendit.mLogger;
 
@@ -32,21 +35,32 @@ public class BaseRequest<T> extends Request<T> {
     private static final String NO_AUTHENTICATION_CHALLENGES_FOUND_ERROR = "java.io.IOException: No authentication challenges found";
     private static final String PROTOCOL_CHARSET = "utf-8";
     private static final String PROTOCOL_CONTENT_TYPE = String.format("application/json; charset=%s", PROTOCOL_CHARSET);
+    public static final String IDEMPOTENCY_KEY_HEADER = "X-IDEMPOTENCY-KEY";
+
+    private static final Random random = new Random();
 
     private final Response.Listener<T> listener;
-    private Map<String, String> headers;
-    private final GsonBuilder gsonBuilder = new GsonBuilder();
+    // Shared and never modified until addHeader copies it
+    private Map<String, String> headers = Collections.emptyMap();
+    private boolean sharedHeaders = true;
     private final Type type;
     private TokenExpiredListener tokenExpiredListener;
     private boolean isRefreshToken = true;
-    private JsonObject jsonBody;
-    private Gson gson;
+    private byte[] body;
+    private RetrySettings retrySettings = RetrySettings.DEFAULT;
+    private volatile boolean deliveredOnNetworkThread;
+    private volatile Call call;
+    // notified on cancel, so a backoff does not hold the network thread of a cancelled request
+    private final Object backoffLock = new Object();
 
     private BaseRequest(int method, String url, Type type, Response.Listener<T> successListener, Response.ErrorListener errorListener) {
         super(method, url, errorListener);
         this.listener = successListener;
         this.type = type;
         setShouldCache(false);
+        // every failure reaches BaseRetryPolicy, which only retries idempotent requests
+        setShouldRetryServerErrors(true);
+        setShouldRetryConnectionErrors(true);
         setRetryPolicy(new BaseRetryPolicy());
     }
 
@@ -54,34 +68,76 @@ public class BaseRequest<T> extends Request<T> {
         this(method, url, type, responseListener, responseListener);
     }
 
-    public void addParam(String key, String value) {
-        if (jsonBody == null) {
-            jsonBody = new JsonObject();
-        }
-        jsonBody.addProperty(key, value);
+    /**
+     * Sets the serialized body, e.g. written by {@link JsonBodyWriter}. The array is zeroed once
+     * the response or the final error is delivered.
+     */
+    public void setBody(byte[] body) {
+        this.body = body;
     }
 
-    public void addJsonParam(String key, JsonElement jsonParam) {
-        if (jsonBody == null) {
-            jsonBody = new JsonObject();
-        }
-        jsonBody.add(key, jsonParam);
+    /**
+     * @param retrySettings Timeouts and retries of the request, {@link RetrySettings#DEFAULT} if
+     *                      not set
+     */
+    public void setRetrySettings(RetrySettings retrySettings) {
+        this.retrySettings = retrySettings;
+    }
+
+    /**
+     * @return The timeout to establish the connection, the read timeout is
+     * {@link #getTimeoutMs()}
+     */
+    public int getConnectTimeoutMs() {
+        return retrySettings.connectTimeoutMs;
+    }
+
+    /**
+     * Delivers the response on the network thread that received it instead of the main thread,
+     * for listeners that only send the next request of a pipeline. Such listeners must not touch
+     * the UI and must return quickly, see {@link PipelineDelivery}.
+     */
+    public void setDeliveredOnNetworkThread(boolean deliveredOnNetworkThread) {
+        this.deliveredOnNetworkThread = deliveredOnNetworkThread;
+    }
+
+    public boolean isDeliveredOnNetworkThread() {
+        return deliveredOnNetworkThread;
+    }
+
+    /**
+     * A GET can always be sent again, a POST only with an idempotency key, since the server then
+     * answers a repeated attempt with the result of the first one
+     */
+    public boolean isIdempotent() {
+        return getMethod() == Method.GET || headers.containsKey(IDEMPOTENCY_KEY_HEADER);
+    }
+
+    /**
+     * Uses headers without copying them, e.g. an unmodifiable map shared by every request of a
+     * Xendit instance. The map must not be modified afterwards.
+     */
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+        sharedHeaders = true;
     }
 
     public void addHeader(String key, String value) {
-        if (headers == null) {
-            headers = new HashMap<>();
+        if (sharedHeaders) {
+            headers = new HashMap<>(headers);
+            sharedHeaders = false;
         }
         headers.put(key, value);
     }
 
     @Override
     public Map<String, String> getHeaders() throws AuthFailureError {
-        return headers != null ? headers : super.getHeaders();
+        return headers;
     }
 
     @Override
     protected void deliverResponse(T response) {
+        clearBody();
         if (null != listener) {
             listener.onResponse(response);
         }
@@ -91,34 +147,22 @@ public class BaseRequest<T> extends Request<T> {
     protected Response<T> parseNetworkResponse(NetworkResponse response) {
         mLogger.log(Logger.Level.INFO, "parseNetworkResponse");
         try {
-            String jsonString = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
-            return Response.success(parseResult(jsonString), HttpHeaderParser.parseCacheHeaders(response));
+            String charset = HttpHeaderParser.parseCharset(response.headers);
+            return Response.success(parseResult(response.data, charset), HttpHeaderParser.parseCacheHeaders(response));
         } catch (UnsupportedEncodingException | JsonParseException e) {
             return Response.error(new ParseError(e));
         }
     }
 
-    private T parseResult(String response) {
-        T result;
+    @SuppressWarnings("unchecked")
+    private T parseResult(byte[] data, String charset) throws UnsupportedEncodingException {
         if (type == String.class) {
-            result = (T) response;
-        } else {
-            JsonReader reader = new JsonReader(new StringReader(response));
-            reader.setLenient(true);
-            result = getGson().fromJson(reader, type);
-        }
-        return result;
-    }
-
-    private Gson createGson() {
-        return gsonBuilder.create();
-    }
-
-    private Gson getGson() {
-        if (gson == null) {
-            gson = createGson();
+            return (T) new String(data, charset);
         }
-        return gson;
+        // decoded while parsing, the body is never copied into a String
+        JsonReader reader = new JsonReader(new ByteArrayReader(data, charset));
+        reader.setLenient(true);
+        return ModelGson.get().fromJson(reader, type);
     }
 
     @Override
@@ -128,15 +172,51 @@ public class BaseRequest<T> extends Request<T> {
 
     @Override
     public byte[] getBody() {
-        byte[] body = null;
-        if (jsonBody != null) {
-            try {
-                body = getGson().toJson(jsonBody).getBytes(PROTOCOL_CHARSET);
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
+        return body;
+    }
+
+    /**
+     * Also aborts the network call in progress, so a cancelled request frees its network thread
+     * right away
+     */
+    @Override
+    public void cancel() {
+        super.cancel();
+        Call inProgress = call;
+        if (inProgress != null) {
+            inProgress.cancel();
+        }
+        synchronized (backoffLock) {
+            backoffLock.notifyAll();
+        }
+    }
+
+    private void awaitBackoff(long backoffMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        synchronized (backoffLock) {
+            long remainingMs = backoffMs;
+            while (remainingMs > 0 && !isCanceled()) {
+                backoffLock.wait(remainingMs);
+                remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
             }
         }
-        return body;
+    }
+
+    /**
+     * @param call The network call of the current attempt, aborted if the request is cancelled
+     */
+    void setCall(Call call) {
+        this.call = call;
+        if (isCanceled()) {
+            call.cancel();
+        }
+    }
+
+    private void clearBody() {
+        if (body != null) {
+            Arrays.fill(body, (byte) 0);
+            body = null;
+        }
     }
 
     void setTokenExpiredListener(TokenExpiredListener listener) {
@@ -153,28 +233,54 @@ public class BaseRequest<T> extends Request<T> {
             isRefreshToken = false;
             tokenExpiredListener.onTokenExpired(this);
         } else {
+            clearBody();
             super.deliverError(error);
         }
     }
 
+    /**
+     * Retries idempotent requests on timeouts, connection errors and 5xx responses, waiting the
+     * backoff of the settings on the network thread between the attempts
+     */
     private class BaseRetryPolicy implements RetryPolicy {
 
-        private static final int DEFAULT_TIMEOUT_MS = 15 * 1000;
-        private static final int RETRY_COUNT = 0;
+        private int retryCount;
+        private long firstAttemptNanos;
 
         @Override
         public int getCurrentTimeout() {
-            return DEFAULT_TIMEOUT_MS;
+            if (firstAttemptNanos == 0) {
+                firstAttemptNanos = System.nanoTime();
+            }
+            return retrySettings.readTimeoutMs;
         }
 
         @Override
         public int getCurrentRetryCount() {
-            return RETRY_COUNT;
+            return retryCount;
         }
 
         @Override
         public void retry(VolleyError error) throws VolleyError {
-            throw error;
+            if (isCanceled() || error instanceof AuthFailureError || !isIdempotent() || retryCount >= retrySettings.maxRetries) {
+                throw error;
+            }
+            long backoffMs = retrySettings.backoffMs(retryCount, random);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttemptNanos);
+            if (elapsedMs + backoffMs > retrySettings.maxElapsedMs) {
+                throw error;
+            }
+            try {
+                awaitBackoff(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw error;
+            }
+            if (isCanceled()) {
+                throw error;
+            }
+            retryCount++;
+            mLogger.log(Logger.Level.INFO, "Retry %d of %s after %d ms", retryCount, getUrl(), backoffMs);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.xendit.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Opens connections ahead of time so the first real request finds a resolved host and a pooled
+ * keep-alive TLS connection.
+ *
+ * The connections are made with the shared client of {@link HttpTransport}, so they land in the
+ * connection pool the payment API requests use. A url is warmed up at most once per keep-alive of
+ * the pool, a connection opened before is still pooled meanwhile.
+ */
+public final class ConnectionWarmer {
+
+    private static final String TAG = "ConnectionWarmer";
+
+    /**
+     * Keep-alive of the default OkHttp connection pool
+     */
+    static final long KEEP_ALIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    // url -> when it was last warmed up
+    private static final Map<String, Long> warmedUpAt = new ConcurrentHashMap<>();
+
+    private ConnectionWarmer() {
+    }
+
+    /**
+     * Resolves and connects to every url on the dispatcher threads of client
+     *
+     * @param client The client whose connection pool should be warmed up
+     * @param urls Base urls of the hosts to connect to
+     */
+    public static void warmUp(OkHttpClient client, String... urls) {
+        for (final String url : urls) {
+            if (url == null || !startWarmUp(url, System.currentTimeMillis())) {
+                continue;
+            }
+            Request request;
+            try {
+                request = new Request.Builder().url(url).head().build();
+            } catch (IllegalArgumentException e) {
+                Log.d(TAG, "Could not warm up " + url + ": " + e.getMessage());
+                warmedUpAt.remove(url);
+                continue;
+            }
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    Log.d(TAG, "Could not warm up " + url + ": " + e.getMessage());
+                    // the next call tries again
+                    warmedUpAt.remove(url);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    // closing the body returns the connection to the pool
+                    response.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if url was not warmed up within the keep-alive, it then counts as warmed up now
+     */
+    static boolean startWarmUp(String url, long now) {
+        while (true) {
+            Long last = warmedUpAt.get(url);
+            if (last != null && now - last >= 0 && now - last < KEEP_ALIVE_MILLIS) {
+                return false;
+            }
+            if (last == null ? warmedUpAt.putIfAbsent(url, now) == null : warmedUpAt.replace(url, last, now)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.xendit.network;
+
+/**
+ * The calls made by the SDK, each can have its own {@link RetrySettings}
+ */
+public enum Endpoint {
+    /**
+     * GET of the tokenization configuration
+     */
+    TOKEN_CONFIGURATION,
+    /**
+     * POST of the card data to Flex
+     */
+    TOKENIZE_CARD,
+    /**
+     * POST creating a credit card token
+     */
+    CREATE_TOKEN,
+    /**
+     * POST creating a 3DS authentication
+     */
+    CREATE_AUTHENTICATION
+}
@@ -0,0 +1,117 @@
+package com.xendit.network;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.NoCache;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Process-wide HTTP transport of the SDK.
+ *
+ * Payment API requests (through Volley), log uploads and connection warm up all go through one
+ * OkHttpClient, so they share its connection pool, dispatcher and TLS configuration. Every Xendit
+ * instance uses the same RequestQueue. SDK requests are never cached, so the queue has no disk
+ * cache, and requests of a pipeline can ask for their response on the network thread, see
+ * {@link BaseRequest#setDeliveredOnNetworkThread(boolean)}.
+ *
+ * Apps that already have an OkHttpClient can hand it to the SDK before creating the first Xendit
+ * instance, the SDK then reuses its pool and dispatcher instead of creating its own:
+ *
+ * <pre>
+ * HttpTransport.setOkHttpClient(appOkHttpClient);
+ * Xendit xendit = new Xendit(context, publishableKey);
+ * </pre>
+ *
+ * The TLS configuration of the app's client is kept as is. On Jelly Bean and KitKat the SDK's own
+ * client enables TLS 1.2 with {@link TLSSocketFactory}, an app client used on those versions must
+ * enable it too, e.g. with the same factory.
+ */
+public final class HttpTransport {
+
+    private static final String TAG = "HttpTransport";
+    private static final int NETWORK_THREAD_POOL_SIZE = 4;
+
+    private static OkHttpClient okHttpClient;
+    private static RequestQueue requestQueue;
+
+    private HttpTransport() {
+    }
+
+    /**
+     * Makes the SDK use the connection pool and dispatcher of the app's client. Interceptors of the
+     * client also apply to SDK requests. Its socket factory, trust manager and certificate pinning
+     * are left untouched, on Jelly Bean and KitKat it must enable TLS 1.2 itself.
+     *
+     * @param client The client of the app
+     * @throws IllegalStateException if the SDK already made requests with its own client
+     */
+    public static synchronized void setOkHttpClient(OkHttpClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        if (okHttpClient != null) {
+            throw new IllegalStateException("setOkHttpClient must be called before the first Xendit instance is created");
+        }
+        okHttpClient = client;
+    }
+
+    /**
+     * @return The client used for every request of the SDK
+     */
+    public static synchronized OkHttpClient getOkHttpClient() {
+        if (okHttpClient == null) {
+            okHttpClient = enableTls12(new OkHttpClient.Builder()).build();
+        }
+        return okHttpClient;
+    }
+
+    /**
+     * @return The Volley queue of the payment API requests, backed by the shared client
+     */
+    public static synchronized RequestQueue getRequestQueue(Context context) {
+        if (requestQueue == null) {
+            requestQueue = new RequestQueue(new NoCache(), new BasicNetwork(new OkHttpStack(getOkHttpClient())),
+                    NETWORK_THREAD_POOL_SIZE, new PipelineDelivery());
+            requestQueue.start();
+        }
+        return requestQueue;
+    }
+
+    /**
+     * Jelly Bean and KitKat support TLS 1.2 but do not enable it by default
+     */
+    private static OkHttpClient.Builder enableTls12(OkHttpClient.Builder builder) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                && Build.VERSION.SDK_INT <= Build.VERSION_CODES.KITKAT) {
+            try {
+                builder.sslSocketFactory(new TLSSocketFactory(), getDefaultTrustManager());
+            } catch (GeneralSecurityException e) {
+                Log.e(TAG, "Unable to enable TLS 1.2: " + e.getMessage());
+            }
+        }
+        return builder;
+    }
+
+    private static X509TrustManager getDefaultTrustManager() throws GeneralSecurityException {
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init((KeyStore) null);
+        for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new GeneralSecurityException("No X509TrustManager available");
+    }
+}
@@ -0,0 +1,168 @@
+package com.xendit.network;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes JSON request bodies straight to UTF-8 bytes in a single pass.
+ *
+ * The fields are streamed with a JsonWriter into a byte buffer reused by the thread, without
+ * building a JsonObject tree or a String of the whole body. The buffer is zeroed once the body
+ * is copied out, since request bodies carry card data.
+ */
+public final class JsonBodyWriter {
+
+    public interface Body {
+        /**
+         * Writes the members of the body, the enclosing object is already open
+         */
+        void writeTo(JsonWriter writer) throws IOException;
+    }
+
+    // larger buffers are dropped after use instead of being kept by the thread
+    private static final int MAX_RETAINED_BYTES = 16 * 1024;
+
+    private static final ThreadLocal<Utf8Buffer> buffers = new ThreadLocal<Utf8Buffer>() {
+        @Override
+        protected Utf8Buffer initialValue() {
+            return new Utf8Buffer();
+        }
+    };
+
+    private JsonBodyWriter() {
+    }
+
+    /**
+     * @return The body as a JSON object encoded in UTF-8, without its null members
+     */
+    public static byte[] write(Body body) {
+        Utf8Buffer buffer = buffers.get();
+        try {
+            JsonWriter writer = new JsonWriter(buffer);
+            writer.setSerializeNulls(false);
+            writer.beginObject();
+            body.writeTo(writer);
+            writer.endObject();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            // the buffer never fails, only a broken Body can get here
+            throw new IllegalStateException(e);
+        } finally {
+            buffer.clear();
+            if (buffer.capacity() > MAX_RETAINED_BYTES) {
+                buffers.remove();
+            }
+        }
+    }
+
+    /**
+     * Writer encoding chars to UTF-8 into a growable byte array
+     */
+    static final class Utf8Buffer extends Writer {
+
+        private byte[] bytes = new byte[256];
+        private int count;
+        // high surrogate waiting for its low surrogate, 0 if none
+        private char highSurrogate;
+
+        @Override
+        public void write(int c) {
+            writeChar((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                writeChar(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            // overridden so no temporary char array ever holds a copy of the value
+            for (int i = offset, end = offset + length; i < end; i++) {
+                writeChar(str.charAt(i));
+            }
+        }
+
+        private void writeChar(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    ensureCapacity(4);
+                    bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                writeByte('?');
+            }
+
+            if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                bytes[count++] = (byte) (0xC0 | (c >> 6));
+                bytes[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                // unpaired, replaced like String.getBytes does
+                writeByte('?');
+            } else {
+                ensureCapacity(3);
+                bytes[count++] = (byte) (0xE0 | (c >> 12));
+                bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        private void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[count++] = (byte) b;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (count + extra > bytes.length) {
+                byte[] grown = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + extra));
+                Arrays.fill(bytes, 0, count, (byte) 0);
+                bytes = grown;
+            }
+        }
+
+        byte[] toByteArray() {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                writeByte('?');
+            }
+            return Arrays.copyOf(bytes, count);
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        /**
+         * Zeroes the written bytes and empties the buffer
+         */
+        void clear() {
+            Arrays.fill(bytes, 0, count, (byte) 0);
+            count = 0;
+            highSurrogate = 0;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
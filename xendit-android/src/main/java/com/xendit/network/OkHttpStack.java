@@ -0,0 +1,126 @@
+package com.xendit.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Volley HTTP stack executing requests with an OkHttpClient
+ */
+class OkHttpStack extends BaseHttpStack {
+
+    private final OkHttpClient client;
+
+    OkHttpStack(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders)
+            throws IOException, AuthFailureError {
+        int timeoutMs = request.getTimeoutMs();
+        int connectTimeoutMs = request instanceof BaseRequest
+                ? ((BaseRequest<?>) request).getConnectTimeoutMs() : timeoutMs;
+        // derived clients share the connection pool and dispatcher
+        OkHttpClient requestClient = client.newBuilder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl());
+        Map<String, String> headers = request.getHeaders();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        for (Map.Entry<String, String> header : additionalHeaders.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        setMethod(builder, request);
+
+        Call call = requestClient.newCall(builder.build());
+        if (request instanceof BaseRequest) {
+            ((BaseRequest<?>) request).setCall(call);
+        }
+        Response response = call.execute();
+        List<Header> responseHeaders = toVolleyHeaders(response.headers());
+        ResponseBody body = response.body();
+        if (body == null) {
+            return new HttpResponse(response.code(), responseHeaders);
+        }
+        return new HttpResponse(response.code(), responseHeaders, (int) body.contentLength(), body.byteStream());
+    }
+
+    private static void setMethod(okhttp3.Request.Builder builder, Request<?> request)
+            throws AuthFailureError {
+        switch (request.getMethod()) {
+            case Request.Method.DEPRECATED_GET_OR_POST:
+                byte[] body = request.getBody();
+                if (body != null) {
+                    builder.post(RequestBody.create(MediaType.parse(request.getBodyContentType()), body));
+                }
+                break;
+            case Request.Method.GET:
+                builder.get();
+                break;
+            case Request.Method.DELETE:
+                builder.delete(createBody(request, true));
+                break;
+            case Request.Method.POST:
+                builder.post(createBody(request, false));
+                break;
+            case Request.Method.PUT:
+                builder.put(createBody(request, false));
+                break;
+            case Request.Method.HEAD:
+                builder.head();
+                break;
+            case Request.Method.OPTIONS:
+                builder.method("OPTIONS", null);
+                break;
+            case Request.Method.TRACE:
+                builder.method("TRACE", null);
+                break;
+            case Request.Method.PATCH:
+                builder.patch(createBody(request, false));
+                break;
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
+
+    private static RequestBody createBody(Request<?> request, boolean optional) throws AuthFailureError {
+        byte[] body = request.getBody();
+        if (body == null) {
+            if (optional) {
+                return null;
+            }
+            body = new byte[0];
+        }
+        return RequestBody.create(MediaType.parse(request.getBodyContentType()), body);
+    }
+
+    private static List<Header> toVolleyHeaders(Headers headers) {
+        List<Header> volleyHeaders = new ArrayList<>(headers.size());
+        for (int i = 0, size = headers.size(); i < size; i++) {
+            volleyHeaders.add(new Header(headers.name(i), headers.value(i)));
+        }
+        return volleyHeaders;
+    }
+}
@@ -0,0 +1,48 @@
+package com.xendit.network;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.ResponseDelivery;
+import com.android.volley.VolleyError;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers responses on the main thread like Volley does, except for requests marked with
+ * {@link BaseRequest#setDeliveredOnNetworkThread(boolean)}. Those are delivered right on the
+ * network thread, so a pipeline sends its next request without waiting for the main looper.
+ */
+final class PipelineDelivery implements ResponseDelivery {
+
+    private final ResponseDelivery mainThreadDelivery = new ExecutorDelivery(new Handler(Looper.getMainLooper()));
+    private final ResponseDelivery networkThreadDelivery = new ExecutorDelivery(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    });
+
+    @Override
+    public void postResponse(Request<?> request, Response<?> response) {
+        delivery(request).postResponse(request, response);
+    }
+
+    @Override
+    public void postResponse(Request<?> request, Response<?> response, Runnable runnable) {
+        delivery(request).postResponse(request, response, runnable);
+    }
+
+    @Override
+    public void postError(Request<?> request, VolleyError error) {
+        delivery(request).postError(request, error);
+    }
+
+    private ResponseDelivery delivery(Request<?> request) {
+        boolean onNetworkThread = request instanceof BaseRequest && ((BaseRequest<?>) request).isDeliveredOnNetworkThread();
+        return onNetworkThread ? networkThreadDelivery : mainThreadDelivery;
+    }
+}
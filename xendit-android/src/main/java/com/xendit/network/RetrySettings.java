@@ -0,0 +1,150 @@
+package com.xendit.network;
+
+import java.util.Random;
+
+/**
+ * Timeouts and retry budget of a request.
+ *
+ * Failed attempts are retried after an exponential backoff with full jitter: the n-th retry
+ * waits a random time between 0 and min(maxBackoff, initialBackoff * 2^n). Retries stop after
+ * maxRetries, or once the next attempt would start later than maxElapsed after the first one.
+ * Only idempotent requests are ever retried, see {@link BaseRequest#isIdempotent()}.
+ */
+public final class RetrySettings {
+
+    public static final RetrySettings DEFAULT = new Builder().build();
+
+    public static final RetrySettings NO_RETRY = new Builder().maxRetries(0).build();
+
+    final int connectTimeoutMs;
+    final int readTimeoutMs;
+    final int maxRetries;
+    final long initialBackoffMs;
+    final long maxBackoffMs;
+    final long maxElapsedMs;
+
+    private RetrySettings(Builder builder) {
+        connectTimeoutMs = builder.connectTimeoutMs;
+        readTimeoutMs = builder.readTimeoutMs;
+        maxRetries = builder.maxRetries;
+        initialBackoffMs = builder.initialBackoffMs;
+        maxBackoffMs = builder.maxBackoffMs;
+        maxElapsedMs = builder.maxElapsedMs;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * @param retry Zero for the first retry
+     * @return How long to wait before the retry, between 0 and the capped exponential backoff
+     */
+    long backoffMs(int retry, Random random) {
+        // compared before shifting so the backoff cannot overflow
+        long cap = retry >= 62 || initialBackoffMs > (maxBackoffMs >> retry)
+                ? maxBackoffMs : initialBackoffMs << retry;
+        return (long) (random.nextDouble() * cap);
+    }
+
+    public static final class Builder {
+
+        private int connectTimeoutMs = 10 * 1000;
+        private int readTimeoutMs = 15 * 1000;
+        private int maxRetries = 2;
+        private long initialBackoffMs = 500;
+        private long maxBackoffMs = 4 * 1000;
+        private long maxElapsedMs = 30 * 1000;
+
+        public Builder() {
+        }
+
+        private Builder(RetrySettings settings) {
+            connectTimeoutMs = settings.connectTimeoutMs;
+            readTimeoutMs = settings.readTimeoutMs;
+            maxRetries = settings.maxRetries;
+            initialBackoffMs = settings.initialBackoffMs;
+            maxBackoffMs = settings.maxBackoffMs;
+            maxElapsedMs = settings.maxElapsedMs;
+        }
+
+        /**
+         * @param connectTimeoutMs Time to establish the connection, 10 s by default
+         */
+        public Builder connectTimeoutMs(int connectTimeoutMs) {
+            this.connectTimeoutMs = checkPositive(connectTimeoutMs, "connectTimeoutMs");
+            return this;
+        }
+
+        /**
+         * @param readTimeoutMs Time to wait for data once connected, 15 s by default
+         */
+        public Builder readTimeoutMs(int readTimeoutMs) {
+            this.readTimeoutMs = checkPositive(readTimeoutMs, "readTimeoutMs");
+            return this;
+        }
+
+        /**
+         * @param maxRetries Retries after the first attempt, 2 by default, 0 to never retry
+         */
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries < 0");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param initialBackoffMs Upper bound of the wait before the first retry, 500 ms by default
+         * @param maxBackoffMs Upper bound of the wait before any retry, 4 s by default
+         */
+        public Builder backoffMs(long initialBackoffMs, long maxBackoffMs) {
+            if (initialBackoffMs < 0 || maxBackoffMs < initialBackoffMs) {
+                throw new IllegalArgumentException("0 <= initialBackoffMs <= maxBackoffMs is required");
+            }
+            this.initialBackoffMs = initialBackoffMs;
+            this.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param maxElapsedMs No retry starts later than this after the first attempt, 30 s by
+         *                     default
+         */
+        public Builder maxElapsedMs(long maxElapsedMs) {
+            this.maxElapsedMs = checkPositive(maxElapsedMs, "maxElapsedMs");
+            return this;
+        }
+
+        public RetrySettings build() {
+            return new RetrySettings(this);
+        }
+
+        private static int checkPositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " <= 0");
+            }
+            return value;
+        }
+
+        private static long checkPositive(long value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " <= 0");
+            }
+            return value;
+        }
+    }
+}
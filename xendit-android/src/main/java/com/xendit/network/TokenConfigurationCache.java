@@ -0,0 +1,184 @@
+package com.xendit.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.xendit.Models.ModelGson;
+import com.xendit.Models.TokenConfiguration;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory and on-disk cache of the tokenization configuration of a publishable key.
+ *
+ * An entry is fresh for the TTL and can then still be served while stale, up to the max
+ * staleness, as long as a background refresh is started. The memory cache is shared by every
+ * Xendit instance of the process, the disk cache survives process death. Only {@link #load()}
+ * reads from disk, so {@link #get()} never blocks the main thread.
+ */
+public class TokenConfigurationCache {
+
+    public static final long DEFAULT_TTL_MILLIS = 60 * 60 * 1000; // 1 hour
+    public static final long DEFAULT_MAX_STALE_MILLIS = 24 * 60 * 60 * 1000; // 1 day
+
+    private static final String PREFERENCES_NAME = "com.xendit.token_configuration";
+    private static final String CONFIGURATION_SUFFIX = ".configuration";
+    private static final String FETCHED_AT_SUFFIX = ".fetched_at";
+
+    private static final Map<String, Entry> memoryCache = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicBoolean> refreshing = new ConcurrentHashMap<>();
+    // keys whose disk cache was read, at most once per process
+    private static final Set<String> loaded = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Context context;
+    private final String publishableKey;
+    private final Gson gson = ModelGson.get();
+    private SharedPreferences preferences;
+    private volatile long ttlMillis = DEFAULT_TTL_MILLIS;
+    private volatile long maxStaleMillis = DEFAULT_MAX_STALE_MILLIS;
+
+    public TokenConfigurationCache(Context context, String publishableKey) {
+        this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.publishableKey = publishableKey;
+        refreshing.putIfAbsent(publishableKey, new AtomicBoolean());
+    }
+
+    /**
+     * @param ttlMillis How long a configuration is served without refreshing it
+     */
+    public void setTtl(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param maxStaleMillis How long after the TTL a configuration is still served while it is
+     *                       refreshed in the background
+     */
+    public void setMaxStale(long maxStaleMillis) {
+        this.maxStaleMillis = maxStaleMillis;
+    }
+
+    /**
+     * Loads the configuration cached on disk into memory, unless one is there already or the disk
+     * was read before. Reads the disk, so it must be called off the main thread.
+     */
+    public void load() {
+        if (loaded.add(publishableKey) && !memoryCache.containsKey(publishableKey)) {
+            Entry entry = readFromDisk();
+            if (entry != null) {
+                // a configuration fetched meanwhile is newer
+                memoryCache.putIfAbsent(publishableKey, entry);
+            }
+        }
+    }
+
+    /**
+     * @return true if {@link #load()} was already called for the key in this process
+     */
+    public boolean isLoaded() {
+        return loaded.contains(publishableKey);
+    }
+
+    /**
+     * @return The cached configuration, or null if there is none in memory or it is too old to
+     * be served
+     */
+    public Entry get() {
+        Entry entry = memoryCache.get(publishableKey);
+        if (entry == null || entry.getAge() - ttlMillis > maxStaleMillis) {
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(TokenConfiguration tokenConfiguration) {
+        Entry entry = new Entry(tokenConfiguration, System.currentTimeMillis());
+        memoryCache.put(publishableKey, entry);
+        getPreferences().edit()
+                .putString(publishableKey + CONFIGURATION_SUFFIX, gson.toJson(tokenConfiguration))
+                .putLong(publishableKey + FETCHED_AT_SUFFIX, entry.fetchedAt)
+                .apply();
+    }
+
+    /**
+     * Drops the cached configuration, e.g. after the flex API rejected its key
+     */
+    public void invalidate() {
+        memoryCache.remove(publishableKey);
+        getPreferences().edit()
+                .remove(publishableKey + CONFIGURATION_SUFFIX)
+                .remove(publishableKey + FETCHED_AT_SUFFIX)
+                .apply();
+    }
+
+    /**
+     * @return true if entry is past its TTL and should be refreshed
+     */
+    public boolean isStale(Entry entry) {
+        return entry.getAge() > ttlMillis;
+    }
+
+    /**
+     * Marks a background refresh as started so concurrent callers do not start another one
+     *
+     * @return true if the caller should refresh, false if a refresh is already in flight
+     */
+    public boolean startRefresh() {
+        return refreshing.get(publishableKey).compareAndSet(false, true);
+    }
+
+    public void finishRefresh() {
+        refreshing.get(publishableKey).set(false);
+    }
+
+    private Entry readFromDisk() {
+        SharedPreferences preferences = getPreferences();
+        String json = preferences.getString(publishableKey + CONFIGURATION_SUFFIX, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            TokenConfiguration tokenConfiguration = gson.fromJson(json, TokenConfiguration.class);
+            if (tokenConfiguration == null) {
+                return null;
+            }
+            return new Entry(tokenConfiguration, preferences.getLong(publishableKey + FETCHED_AT_SUFFIX, 0));
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private synchronized SharedPreferences getPreferences() {
+        if (preferences == null) {
+            preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        }
+        return preferences;
+    }
+
+    public static final class Entry {
+
+        private final TokenConfiguration tokenConfiguration;
+        private final long fetchedAt;
+
+        Entry(TokenConfiguration tokenConfiguration, long fetchedAt) {
+            this.tokenConfiguration = tokenConfiguration;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public TokenConfiguration getTokenConfiguration() {
+            return tokenConfiguration;
+        }
+
+        long getAge() {
+            long age = System.currentTimeMillis() - fetchedAt;
+            // The clock went back, do not trust the entry
+            return age < 0 ? Long.MAX_VALUE : age;
+        }
+    }
+}
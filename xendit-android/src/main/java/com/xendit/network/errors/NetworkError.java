@@ -2,33 +2,60 @@ package com.xendit.network.errors;
 
 import com.android.volley.NetworkResponse;
 import com.android.volley.VolleyError;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.xendit.Models.ErrorResponse;
+import com.xendit.Models.ModelGson;
+import com.xendit.utils.ByteArrayReader;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.UnsupportedEncodingException;
 
 public class NetworkError extends Exception {
 
+    private static final String DEFAULT_CHARSET = "utf-8";
+
     public int responseCode = -1;
-    public JSONObject errorResponse;
+    // raw body, only parsed once getErrorResponse is called
+    private byte[] errorBody;
+    private String errorCharset;
+    private ErrorResponse errorResponse;
+    private boolean errorParsed;
 
     public NetworkError(VolleyError error) {
         super(error.getMessage(), error.getCause());
         NetworkResponse networkResponse = error.networkResponse;
         if (networkResponse != null) {
             responseCode = networkResponse.statusCode;
-            if (networkResponse.data != null) {
-                String errorString = new String(networkResponse.data);
-                try {
-                    errorResponse = new JSONObject(errorString);
-                } catch (JSONException exception) {
-                    exception.printStackTrace();
-                    errorResponse = null;
-                }
-            }
+            errorBody = networkResponse.data;
+            errorCharset = networkResponse.headers != null
+                    ? HttpHeaderParser.parseCharset(networkResponse.headers, DEFAULT_CHARSET) : DEFAULT_CHARSET;
         }
     }
 
     NetworkError(String detailMessage) {
         super(detailMessage);
     }
-}
\ No newline at end of file
+
+    /**
+     * Parses the body of the error response on first use
+     *
+     * @return The error body, or null if there is none or it is not a JSON object
+     */
+    public synchronized ErrorResponse getErrorResponse() {
+        if (!errorParsed) {
+            errorParsed = true;
+            if (errorBody != null && errorBody.length > 0) {
+                try {
+                    JsonReader reader = new JsonReader(new ByteArrayReader(errorBody, errorCharset));
+                    reader.setLenient(true);
+                    errorResponse = ModelGson.get().fromJson(reader, ErrorResponse.class);
+                } catch (UnsupportedEncodingException | JsonParseException exception) {
+                    errorResponse = null;
+                }
+            }
+            errorBody = null;
+        }
+        return errorResponse;
+    }
+}
@@ -0,0 +1,61 @@
+package com.xendit.utils;
+
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+/**
+ * Reader decoding a byte array straight into the buffer of the caller.
+ *
+ * Unlike new String(bytes) with a StringReader it never holds a decoded copy of the whole array,
+ * and unlike an InputStreamReader it has no buffer of its own, so a JsonReader on top of it only
+ * needs its own small buffer whatever the size of the response.
+ */
+public final class ByteArrayReader extends Reader {
+
+    private final ByteBuffer input;
+    private final CharsetDecoder decoder;
+    private boolean flushed;
+
+    public ByteArrayReader(byte[] data, String charsetName) throws UnsupportedEncodingException {
+        Charset charset;
+        try {
+            charset = Charset.forName(charsetName);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(charsetName);
+        }
+        // same replacement behavior as new String(bytes, charset)
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        input = ByteBuffer.wrap(data);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (flushed) {
+            return -1;
+        }
+        CharBuffer output = CharBuffer.wrap(buffer, offset, length);
+        // the whole input is available, so every call is the end of the input
+        decoder.decode(input, output, true);
+        if (!input.hasRemaining() && decoder.flush(output).isUnderflow()) {
+            flushed = true;
+        }
+        int read = output.position() - offset;
+        return read == 0 && flushed ? -1 : read;
+    }
+
+    @Override
+    public void close() {
+    }
+}
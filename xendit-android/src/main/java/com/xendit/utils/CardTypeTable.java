@@ -0,0 +1,241 @@
+package com.xendit.utils;
+
+import com.xendit.utils.CardValidator.CardType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable digit trie of IIN (BIN) prefix ranges used to resolve the {@link CardType} of a
+ * card number.
+ *
+ * Lookups walk the trie once over the leading digits of the number and never allocate. A range
+ * is stored as the fewest prefixes covering it, e.g. 400000-499999 as 4 and 622126-622925 as
+ * 62213 to 62219, 6222 to 6228 and so on. A number resolves to the type of the longest stored
+ * prefix it matches (e.g. 5019 DANKORT over 50 MAESTRO), for stored prefixes of the same length
+ * to the range added last. Precedence thus follows the length of the stored prefixes, not of the
+ * ranges as written.
+ *
+ * A partial number resolves to the longest stored prefix matched so far, even while a longer
+ * prefix of another type may still follow: "62" is MAESTRO, and only becomes DISCOVER once the
+ * digits reach 622126-622925, e.g. at "6222".
+ *
+ * New ranges are added through {@link Builder}, without touching any lookup code:
+ *
+ * <pre>
+ * CardTypeTable table = CardTypeTable.DEFAULT.newBuilder()
+ *         .addRange("2221", "2720", CardType.MASTERCARD)
+ *         .build();
+ * CardValidator.setCardTypeTable(table);
+ * </pre>
+ */
+public final class CardTypeTable {
+
+    static final int NO_NODE = -1;
+    private static final int ROOT_NODE = 0;
+    private static final int RADIX = 10;
+
+    /**
+     * The ranges CardValidator resolves by default
+     */
+    public static final CardTypeTable DEFAULT = new Builder()
+            .addPrefix("4", CardType.VISA)
+            .addPrefix("4026", CardType.VISA_ELECTRON)
+            .addPrefix("417500", CardType.VISA_ELECTRON)
+            .addPrefix("4405", CardType.VISA_ELECTRON)
+            .addPrefix("4508", CardType.VISA_ELECTRON)
+            .addPrefix("4844", CardType.VISA_ELECTRON)
+            .addPrefix("4913", CardType.VISA_ELECTRON)
+            .addPrefix("4917", CardType.VISA_ELECTRON)
+            .addPrefix("34", CardType.AMEX)
+            .addPrefix("37", CardType.AMEX)
+            .addRange("51", "55", CardType.MASTERCARD)
+            .addRange("644", "649", CardType.DISCOVER)
+            .addRange("622126", "622925", CardType.DISCOVER)
+            .addPrefix("65", CardType.DISCOVER)
+            .addPrefix("6011", CardType.DISCOVER)
+            .addRange("3528", "3589", CardType.JCB)
+            .addPrefix("5019", CardType.DANKORT)
+            .addPrefix("50", CardType.MAESTRO)
+            .addRange("56", "64", CardType.MAESTRO)
+            .addRange("66", "69", CardType.MAESTRO)
+            .build();
+
+    private final int[] children;
+    private final CardType[] types;
+    private final List<Range> ranges;
+
+    private CardTypeTable(int[] children, CardType[] types, List<Range> ranges) {
+        this.children = children;
+        this.types = types;
+        this.ranges = ranges;
+    }
+
+    /**
+     * Resolves the card type from the leading digits of a card number. Whitespace is skipped and
+     * the walk stops at the first non-digit character, so partial input such as "4" or "3528"
+     * already resolves to a brand. That type is the longest prefix matched so far and may change
+     * as digits are added, see the class documentation.
+     *
+     * @param  cardNumber The full or partial credit card number
+     * @return CardType The card type, or OTHER if no range matches
+     */
+    public CardType getCardType(CharSequence cardNumber) {
+        int node = ROOT_NODE;
+        CardType cardType = types[node] != null ? types[node] : CardType.OTHER;
+
+        for (int i = 0, length = cardNumber.length(); i < length && node != NO_NODE; i++) {
+            char c = cardNumber.charAt(i);
+            if (CardValidator.isWhitespace(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+            node = nextNode(node, c - '0');
+            if (node != NO_NODE && types[node] != null) {
+                cardType = types[node];
+            }
+        }
+
+        return cardType;
+    }
+
+    /**
+     * @return a builder pre-populated with the ranges of this table
+     */
+    public Builder newBuilder() {
+        Builder builder = new Builder();
+        for (Range range : ranges) {
+            builder.addRange(range.from, range.to, range.cardType);
+        }
+        return builder;
+    }
+
+    int rootNode() {
+        return ROOT_NODE;
+    }
+
+    /**
+     * @return the child of node for digit, or NO_NODE if no range continues with that digit
+     */
+    int nextNode(int node, int digit) {
+        int child = children[node * RADIX + digit];
+        return child == 0 ? NO_NODE : child;
+    }
+
+    /**
+     * @return the card type of the ranges ending exactly at node, or null
+     */
+    CardType nodeType(int node) {
+        return types[node];
+    }
+
+    public static final class Builder {
+
+        private int[] children = new int[RADIX * 16];
+        private CardType[] types = new CardType[16];
+        private int nodeCount = 1;
+        private final List<Range> ranges = new ArrayList<>();
+
+        /**
+         * Maps a single IIN prefix, e.g. "6011", to a card type
+         */
+        public Builder addPrefix(String prefix, CardType cardType) {
+            return addRange(prefix, prefix, cardType);
+        }
+
+        /**
+         * Maps an inclusive range of IIN prefixes of the same length, e.g. "3528" to "3589", to a
+         * card type
+         */
+        public Builder addRange(String from, String to, CardType cardType) {
+            if (from == null || to == null || cardType == null) {
+                throw new IllegalArgumentException("from, to and cardType are required");
+            }
+            if (from.isEmpty() || from.length() != to.length() || !isDigits(from) || !isDigits(to)
+                    || from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("Invalid IIN range " + from + "-" + to);
+            }
+
+            ranges.add(new Range(from, to, cardType));
+            insert(ROOT_NODE, from, to, 0, true, true, cardType);
+            return this;
+        }
+
+        public CardTypeTable build() {
+            return new CardTypeTable(Arrays.copyOf(children, nodeCount * RADIX),
+                    Arrays.copyOf(types, nodeCount),
+                    Collections.unmodifiableList(new ArrayList<>(ranges)));
+        }
+
+        /**
+         * Marks the minimal set of trie nodes covering [from, to] below node. The bounded flags
+         * tell whether the digits above depth are still equal to the lower and upper bound.
+         */
+        private void insert(int node, String from, String to, int depth, boolean lowerBounded,
+                            boolean upperBounded, CardType cardType) {
+            int length = from.length();
+            if (depth == length || (isCovered(from, depth, '0', lowerBounded)
+                    && isCovered(to, depth, '9', upperBounded))) {
+                types[node] = cardType;
+                return;
+            }
+
+            int low = lowerBounded ? from.charAt(depth) - '0' : 0;
+            int high = upperBounded ? to.charAt(depth) - '0' : RADIX - 1;
+            for (int digit = low; digit <= high; digit++) {
+                insert(child(node, digit), from, to, depth + 1,
+                        lowerBounded && digit == low, upperBounded && digit == high, cardType);
+            }
+        }
+
+        private static boolean isCovered(String bound, int depth, char fill, boolean bounded) {
+            if (!bounded) {
+                return true;
+            }
+            for (int i = depth; i < bound.length(); i++) {
+                if (bound.charAt(i) != fill) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int child(int node, int digit) {
+            int index = node * RADIX + digit;
+            if (children[index] == 0) {
+                if (nodeCount == types.length) {
+                    types = Arrays.copyOf(types, nodeCount * 2);
+                    children = Arrays.copyOf(children, nodeCount * 2 * RADIX);
+                }
+                children[index] = nodeCount++;
+            }
+            return children[index];
+        }
+
+        private static boolean isDigits(String str) {
+            for (int i = 0; i < str.length(); i++) {
+                char c = str.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Range {
+        final String from;
+        final String to;
+        final CardType cardType;
+
+        Range(String from, String to, CardType cardType) {
+            this.from = from;
+            this.to = to;
+            this.cardType = cardType;
+        }
+    }
+}
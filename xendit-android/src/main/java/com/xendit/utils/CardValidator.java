@@ -2,11 +2,7 @@ package com.xendit.utils;
 
 import android.support.annotation.NonNull;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
 
 /**
  * Created by gonzalez on 8/22/17.
@@ -43,6 +39,26 @@ public class CardValidator {
         }
     }
 
+    private static volatile CardTypeTable cardTypeTable = CardTypeTable.DEFAULT;
+
+    /**
+     * Replaces the IIN ranges used to resolve card types, e.g. to recognize a newly issued range
+     *
+     * @param  table The table to use, see {@link CardTypeTable#newBuilder()}
+     */
+    public static void setCardTypeTable(@NonNull CardTypeTable table) {
+        if (table == null) {
+            throw new IllegalArgumentException("table must not be null");
+        }
+        cardTypeTable = table;
+    }
+
+    /**
+     * @return The IIN ranges currently used to resolve card types
+     */
+    public static CardTypeTable getCardTypeTable() {
+        return cardTypeTable;
+    }
 
     /**
      * Determines whether the credit card number provided is valid
@@ -50,19 +66,20 @@ public class CardValidator {
      * @param  cardNumber A credit card number
      * @return true if the credit card number is valid, false otherwise
      */
-    public static boolean isCardNumberValid(String cardNumber) {
+    public static boolean isCardNumberValid(CharSequence cardNumber) {
         if (cardNumber == null) {
             return false;
         }
 
-        String cleanCardNumber = cleanCardNumber(cardNumber);
-        CardType cardType = getCardType(cleanCardNumber);
+        long scan = scanCardNumber(cardNumber);
+        int digitCount = scanDigitCount(scan);
+        CardType cardType = scanCardType(scan);
 
-        return cleanCardNumber.length() >= 12 &&
-                cleanCardNumber.length() <= 19 &&
-                isNumeric(cleanCardNumber) &&
-                isValidLuhnNumber(cleanCardNumber) &&
-                cardType != null && !cardType.equals(CardType.OTHER);
+        return digitCount >= 12 &&
+                digitCount <= 19 &&
+                !scanHasInvalidChar(scan) &&
+                scanIsLuhnValid(scan) &&
+                cardType != CardType.OTHER;
     }
 
     /**
@@ -72,20 +89,19 @@ public class CardValidator {
      * @param  expirationYear The year a card expires represented by digits (e.g. 2026)
      * @return true if both the expiration month and year are valid
      */
-    public static boolean isExpiryValid(String expirationMonth, String expirationYear) {
+    public static boolean isExpiryValid(CharSequence expirationMonth, CharSequence expirationYear) {
         if (expirationMonth == null || expirationYear == null) {
             return false;
         }
 
-        String cleanMonth = removeWhitespace(expirationMonth);
-        String cleanYear = removeWhitespace(expirationYear);
+        int month = parseDigits(expirationMonth);
+        int year = parseDigits(expirationYear);
 
-        return isNumeric(cleanMonth) && isNumeric(cleanYear) &&
-                parseNumberSafely(cleanMonth) >= 1 &&
-                parseNumberSafely(cleanMonth) <= 12 &&
-                parseNumberSafely(cleanYear) >= 2017 &&
-                parseNumberSafely(cleanYear) <= 2100 &&
-                isNotInThePast(cleanMonth, cleanYear);
+        return month >= 1 &&
+                month <= 12 &&
+                year >= 2017 &&
+                year <= 2100 &&
+                isNotInThePast(month, year);
     }
 
     /**
@@ -95,19 +111,17 @@ public class CardValidator {
      * @param  cardNumber The credit card number
      * @return true if the cvn length is valid for this card type, false otherwise
      */
-    public static boolean isCvnValidForCardType (String cardCVN, String cardNumber) {
+    public static boolean isCvnValidForCardType (CharSequence cardCVN, CharSequence cardNumber) {
         if (cardCVN == null || cardNumber == null) {
             return false;
         }
 
-        String cleanCvn = cleanCvn(cardCVN);
-        String cleanCardNumber = cleanCardNumber(cardNumber);
-
-        if (isNumeric(cleanCvn) && Integer.parseInt(cleanCvn) >= 0) {
-            return isCardAmex(cleanCardNumber) ? cleanCvn.length() == 4 : cleanCvn.length() == 3;
+        int cvnLength = countDigits(cardCVN);
+        if (cvnLength <= 0) {
+            return false;
         }
 
-        return false;
+        return cardTypeTable.getCardType(cardNumber) == CardType.AMEX ? cvnLength == 4 : cvnLength == 3;
     }
 
     /**
@@ -116,17 +130,14 @@ public class CardValidator {
      * @param  cardCVN The credit card CVN
      * @return true if the cvn is valid, false otherwise
      */
-    public static boolean isCvnValid(String cardCVN) {
+    public static boolean isCvnValid(CharSequence cardCVN) {
         if (cardCVN == null) {
             return false;
         }
 
-        String cleanCvn = cleanCvn(cardCVN);
+        int cvnLength = countDigits(cardCVN);
 
-        return isNumeric(cleanCvn)
-                && Integer.parseInt(cleanCvn) >= 0
-                && cleanCvn.length() >= 3
-                && cleanCvn.length() <= 4;
+        return cvnLength >= 3 && cvnLength <= 4;
     }
 
     /**
@@ -150,176 +161,188 @@ public class CardValidator {
     }
 
     /**
-     * Computes the card type based on the card number
+     * Computes the card type based on the card number. Partial numbers are resolved from the
+     * digits typed so far, e.g. "4" is VISA and "6011" is DISCOVER, and may resolve differently
+     * once more digits are typed, e.g. "62" is MAESTRO but "6222" is DISCOVER.
      *
-     * @param  cardNumber The credit card number
+     * @param  cardNumber The full or partial credit card number
      * @return CardType The card type, e.g. VISA
      */
-    public static CardType getCardType(String cardNumber) {
-        String cleanCardNumber = cleanCardNumber(cardNumber);
-
-        if (cleanCardNumber == null) {
-            return null;
-        } else if (cleanCardNumber.indexOf("4") == 0) {
-            if (isCardVisaElectron(cleanCardNumber)) {
-                return CardType.VISA_ELECTRON;
-            } else {
-                return CardType.VISA;
-            }
-        } else if (isCardAmex(cleanCardNumber)) {
-            return CardType.AMEX;
-        } else if (isCardMastercard(cleanCardNumber)) {
-            return CardType.MASTERCARD;
-        } else if (isCardDiscover(cleanCardNumber)) {
-            return CardType.DISCOVER;
-        } else if (isCardJCB(cleanCardNumber)) {
-            return CardType.JCB;
-        } else if (isCardDankort(cleanCardNumber)) {
-            return CardType.DANKORT;
-        } else if (isCardMaestro(cleanCardNumber)) {
-            return CardType.MAESTRO;
-        } else {
-            return CardType.OTHER;
-        }
-    }
-
-    private static String removeWhitespace(String str) {
-        if (str == null) {
+    public static CardType getCardType(CharSequence cardNumber) {
+        if (cardNumber == null) {
             return null;
         }
 
-        return str.replaceAll("\\s", "");
-    }
-
-    private static boolean isNumeric(String str) {
-        if (str == null) {
-            return false;
-        }
-
-        return str.matches("[0-9]+");
+        return cardTypeTable.getCardType(cardNumber);
     }
 
-    private static boolean isValidLuhnNumber(String cardNumber) {
-        int sum = 0;
-        boolean alternate = false;
+    // Layout of the packed result returned by scanCardNumber. Packing everything into a
+    // primitive keeps the keystroke path free of allocations.
+    private static final int SCAN_DIGIT_COUNT_MASK = 0xFF;
+    private static final long SCAN_INVALID_CHAR = 1L << 8;
+    private static final long SCAN_LUHN_VALID = 1L << 9;
+    private static final int SCAN_CARD_TYPE_SHIFT = 16;
+    private static final CardType[] CARD_TYPES = CardType.values();
 
-        for (int i = cardNumber.length() - 1; i >= 0; i--) {
-            int n = Integer.parseInt(cardNumber.substring(i, i + 1));
+    /**
+     * Walks the card number once, skipping whitespace, and collects the digit count, whether a
+     * non-digit was seen, the Luhn result and the card type resolved from the IIN prefix.
+     *
+     * The Luhn sum is kept for both parities since the doubling position is only known once the
+     * total digit count is known.
+     */
+    private static long scanCardNumber(CharSequence cardNumber) {
+        int digitCount = 0;
+        int evenDoubledSum = 0;
+        int oddDoubledSum = 0;
+        CardTypeTable table = cardTypeTable;
+        int node = table.rootNode();
+        CardType cardType = table.nodeType(node) != null ? table.nodeType(node) : CardType.OTHER;
+        boolean invalidChar = false;
+
+        for (int i = 0, length = cardNumber.length(); i < length; i++) {
+            char c = cardNumber.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                invalidChar = true;
+                digitCount++;
+                continue;
+            }
 
-            if (alternate) {
-                n *= 2;
+            int digit = c - '0';
+            int doubled = digit * 2;
+            if (doubled > 9) {
+                doubled -= 9;
+            }
+            if ((digitCount & 1) == 0) {
+                evenDoubledSum += doubled;
+                oddDoubledSum += digit;
+            } else {
+                evenDoubledSum += digit;
+                oddDoubledSum += doubled;
+            }
 
-                if (n > 9) {
-                    n = (n % 10) + 1;
+            if (!invalidChar && node != CardTypeTable.NO_NODE) {
+                node = table.nextNode(node, digit);
+                if (node != CardTypeTable.NO_NODE && table.nodeType(node) != null) {
+                    cardType = table.nodeType(node);
                 }
             }
-            sum += n;
-            alternate = !alternate;
+            digitCount++;
         }
 
-        return (sum % 10 == 0);
-    }
-
-    private static boolean isNotInThePast(String expirationMonth, String expirationYear) {
-        DateFormat monthFormat = new SimpleDateFormat("MM", Locale.US);
-        Date now = new Date();
-
-        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-        int currentMonth = parseNumberSafely(monthFormat.format(now));
-
-        int expMonth = parseNumberSafely(expirationMonth);
-        int expYear = parseNumberSafely(expirationYear);
-
-        return (expYear == currentYear && expMonth >= currentMonth) || expYear > currentYear;
+        int luhnSum = (digitCount & 1) == 0 ? evenDoubledSum : oddDoubledSum;
 
+        long scan = Math.min(digitCount, SCAN_DIGIT_COUNT_MASK);
+        if (invalidChar) {
+            scan |= SCAN_INVALID_CHAR;
+        }
+        if (luhnSum % 10 == 0) {
+            scan |= SCAN_LUHN_VALID;
+        }
+        scan |= (long) cardType.ordinal() << SCAN_CARD_TYPE_SHIFT;
+        return scan;
     }
 
-    private static int parseNumberSafely(String numberStr) {
-        int number = -1;
-
-        if (numberStr != null) {
-            try {
-                number = Integer.parseInt(numberStr);
-            }
-            catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    private static int scanDigitCount(long scan) {
+        return (int) (scan & SCAN_DIGIT_COUNT_MASK);
+    }
 
-        return number;
+    private static boolean scanHasInvalidChar(long scan) {
+        return (scan & SCAN_INVALID_CHAR) != 0;
     }
 
-    private static boolean isCardAmex(String cardNumber) {
-        return cardNumber != null && (cardNumber.indexOf("34") == 0 || cardNumber.indexOf("37") == 0);
+    private static boolean scanIsLuhnValid(long scan) {
+        return (scan & SCAN_LUHN_VALID) != 0;
     }
 
-    private static boolean isCardMastercard(String cardNumber) {
-        if (cardNumber != null && cardNumber.length() >= 2) {
-            int startingNumber = number(cardNumber.substring(0, 2));
-            return startingNumber >= 51 && startingNumber <= 55;
-        } else {
-            return false;
-        }
+    private static CardType scanCardType(long scan) {
+        return CARD_TYPES[(int) (scan >>> SCAN_CARD_TYPE_SHIFT)];
     }
 
-    private static boolean isCardDiscover(String cardNumber) {
-        if (cardNumber != null && cardNumber.length() >= 6) {
-            int firstStartingNumber = number(cardNumber.substring(0, 3));
-            int secondStartingNumber = number(cardNumber.substring(0, 6));
-            return (firstStartingNumber >= 644 && firstStartingNumber <= 649)
-                    || (secondStartingNumber >= 622126 && secondStartingNumber <= 622925)
-                    || cardNumber.indexOf("65") == 0
-                    || cardNumber.indexOf("6011") == 0;
-        } else {
-            return false;
-        }
+    static boolean isWhitespace(char c) {
+        // Same set as the regex class \s
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
-    private static boolean isCardMaestro(String cardNumber) {
-        if (cardNumber != null && cardNumber.length() >= 2) {
-            int startingNumber = number(cardNumber.substring(0, 2));
-            return startingNumber == 50
-                    || (startingNumber >= 56 && startingNumber <= 64)
-                    || (startingNumber >= 66 && startingNumber <= 69);
+    private static String removeWhitespace(String str) {
+        if (str == null) {
+            return null;
         }
 
-        return false;
-    }
-
-    private static boolean isCardDankort(String cardNumber) {
-        return cardNumber != null && cardNumber.indexOf("5019") == 0;
-    }
+        int length = str.length();
+        int i = 0;
+        while (i < length && !isWhitespace(str.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return str;
+        }
 
-    private static boolean isCardJCB(String cardNumber) {
-        if (cardNumber != null && cardNumber.length() >= 4) {
-            int startingNumber = number(cardNumber.substring(0, 4));
-            return startingNumber >= 3528 && startingNumber <= 3589;
-        } else {
-            return false;
+        StringBuilder builder = new StringBuilder(length - 1);
+        builder.append(str, 0, i);
+        for (; i < length; i++) {
+            char c = str.charAt(i);
+            if (!isWhitespace(c)) {
+                builder.append(c);
+            }
         }
+        return builder.toString();
     }
 
-    private static boolean isCardVisaElectron(String cardNumber) {
-        return cardNumber != null && (cardNumber.indexOf("4026") == 0
-                || cardNumber.indexOf("417500") == 0
-                || cardNumber.indexOf("4405") == 0
-                || cardNumber.indexOf("4508") == 0
-                || cardNumber.indexOf("4844") == 0
-                || cardNumber.indexOf("4913") == 0
-                || cardNumber.indexOf("4917") == 0);
+    /**
+     * Counts the digits of a whitespace padded number
+     *
+     * @return the number of digits, or -1 if it contains anything other than digits and whitespace
+     */
+    private static int countDigits(CharSequence str) {
+        int count = 0;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            count++;
+        }
+        return count;
     }
 
-    private static int number(String sNumber) {
-        int number = -1;
-
-        if (sNumber != null) {
-            try {
-                number = Integer.parseInt(sNumber);
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * Parses a whitespace padded number
+     *
+     * @return the parsed value, or -1 if it is empty, contains anything other than digits and
+     * whitespace, or does not fit in an int
+     */
+    private static int parseDigits(CharSequence str) {
+        long number = 0;
+        int count = 0;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
             }
+            number = number * 10 + (c - '0');
+            if (number > Integer.MAX_VALUE) {
+                return -1;
+            }
+            count++;
         }
+        return count > 0 ? (int) number : -1;
+    }
 
-        return number;
+    private static boolean isNotInThePast(int expMonth, int expYear) {
+        Calendar calendar = Calendar.getInstance();
+        int currentYear = calendar.get(Calendar.YEAR);
+        int currentMonth = calendar.get(Calendar.MONTH) + 1;
+
+        return (expYear == currentYear && expMonth >= currentMonth) || expYear > currentYear;
     }
 }
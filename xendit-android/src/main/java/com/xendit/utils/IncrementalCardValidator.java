@@ -0,0 +1,300 @@
+package com.xendit.utils;
+
+import com.xendit.utils.CardValidator.CardType;
+
+import java.util.Arrays;
+
+/**
+ * Stateful card number validator meant to be fed from a TextWatcher.
+ *
+ * Instead of rescanning the whole number after every keystroke it keeps a running Luhn sum for
+ * both parities, the digit count, the card type prefix path and the number of invalid characters.
+ * Appending, deleting the last character and replacing a character cost O(1). Inserting or
+ * deleting in the middle shifts the parity of the following characters, so it costs at most the
+ * length of the card number.
+ *
+ * Positions are indexes among the non-whitespace characters entered so far; whitespace is
+ * ignored, just like {@link CardValidator#isCardNumberValid(CharSequence)} does.
+ *
+ * This class is not thread-safe, it is expected to be used from the UI thread.
+ */
+public class IncrementalCardValidator {
+
+    public enum State {
+        /**
+         * The number is complete and passes {@link CardValidator#isCardNumberValid(CharSequence)}
+         */
+        VALID,
+        /**
+         * The number is not valid yet but could still become valid by typing more digits
+         */
+        INCOMPLETE,
+        /**
+         * No amount of additional digits can make the number valid
+         */
+        INVALID
+    }
+
+    private static final int MIN_LENGTH = 12;
+    private static final int MAX_LENGTH = 19;
+
+    private final CardTypeTable cardTypeTable;
+
+    private char[] chars = new char[MAX_LENGTH + 1];
+    private int length;
+    private int invalidCharCount;
+    // Luhn sums where the digits at even (resp. odd) positions from the left are doubled
+    private int evenDoubledSum;
+    private int oddDoubledSum;
+
+    // Trie node and resolved card type after each of the leading characters
+    private int[] pathNodes = new int[MAX_LENGTH + 1];
+    private CardType[] pathTypes = new CardType[MAX_LENGTH + 1];
+    private int pathLength;
+
+    public IncrementalCardValidator() {
+        this(CardValidator.getCardTypeTable());
+    }
+
+    public IncrementalCardValidator(CardTypeTable cardTypeTable) {
+        if (cardTypeTable == null) {
+            throw new IllegalArgumentException("cardTypeTable must not be null");
+        }
+        this.cardTypeTable = cardTypeTable;
+    }
+
+    /**
+     * Replaces the current number, e.g. after a paste. Costs O(n).
+     *
+     * @param cardNumber The new card number, may be null
+     */
+    public void setCardNumber(CharSequence cardNumber) {
+        clear();
+        if (cardNumber != null) {
+            for (int i = 0, size = cardNumber.length(); i < size; i++) {
+                append(cardNumber.charAt(i));
+            }
+        }
+    }
+
+    public void clear() {
+        length = 0;
+        invalidCharCount = 0;
+        evenDoubledSum = 0;
+        oddDoubledSum = 0;
+        pathLength = 0;
+    }
+
+    /**
+     * Adds a character at the end of the number
+     */
+    public void append(char c) {
+        if (CardValidator.isWhitespace(c)) {
+            return;
+        }
+        ensureCapacity(length + 1);
+        chars[length] = c;
+        addContribution(c, length, 1);
+        length++;
+        syncPath();
+    }
+
+    /**
+     * Removes the last character of the number, if any
+     */
+    public void deleteLast() {
+        if (length == 0) {
+            return;
+        }
+        length--;
+        addContribution(chars[length], length, -1);
+        if (pathLength > length) {
+            pathLength = length;
+        }
+    }
+
+    /**
+     * Replaces the character at index
+     */
+    public void replace(int index, char c) {
+        checkIndex(index, length);
+        if (CardValidator.isWhitespace(c)) {
+            delete(index);
+            return;
+        }
+        addContribution(chars[index], index, -1);
+        chars[index] = c;
+        addContribution(c, index, 1);
+        truncatePath(index);
+    }
+
+    /**
+     * Inserts a character before index, index may be equal to the current length
+     */
+    public void insert(int index, char c) {
+        checkIndex(index, length + 1);
+        if (CardValidator.isWhitespace(c)) {
+            return;
+        }
+        if (index == length) {
+            append(c);
+            return;
+        }
+        ensureCapacity(length + 1);
+        for (int i = length - 1; i >= index; i--) {
+            addContribution(chars[i], i, -1);
+            chars[i + 1] = chars[i];
+            addContribution(chars[i + 1], i + 1, 1);
+        }
+        chars[index] = c;
+        addContribution(c, index, 1);
+        length++;
+        truncatePath(index);
+    }
+
+    /**
+     * Removes the character at index
+     */
+    public void delete(int index) {
+        checkIndex(index, length);
+        if (index == length - 1) {
+            deleteLast();
+            return;
+        }
+        addContribution(chars[index], index, -1);
+        for (int i = index + 1; i < length; i++) {
+            addContribution(chars[i], i, -1);
+            chars[i - 1] = chars[i];
+            addContribution(chars[i - 1], i - 1, 1);
+        }
+        length--;
+        truncatePath(index);
+    }
+
+    public State getState() {
+        CardType cardType = getCardType();
+        if (invalidCharCount > 0 || length > MAX_LENGTH) {
+            return State.INVALID;
+        }
+        if (cardType == CardType.OTHER && !isPrefixPossible()) {
+            return State.INVALID;
+        }
+        if (length >= MIN_LENGTH && isLuhnValid() && cardType != CardType.OTHER) {
+            return State.VALID;
+        }
+        return length == MAX_LENGTH ? State.INVALID : State.INCOMPLETE;
+    }
+
+    /**
+     * @return true if the number is complete and valid
+     */
+    public boolean isValid() {
+        return getState() == State.VALID;
+    }
+
+    /**
+     * @return The card type resolved from the characters entered so far
+     */
+    public CardType getCardType() {
+        return pathLength > 0 ? pathTypes[pathLength - 1] : getRootType();
+    }
+
+    /**
+     * @return The number of non-whitespace characters entered
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isLuhnValid() {
+        int sum = (length & 1) == 0 ? evenDoubledSum : oddDoubledSum;
+        return sum % 10 == 0;
+    }
+
+    /**
+     * @return true if no more digits can be added to the number
+     */
+    public boolean isAtMaxLength() {
+        return length >= MAX_LENGTH;
+    }
+
+    /**
+     * Whether the leading digits can still lead to a known card type, i.e. the trie walk did not
+     * fall off the table yet
+     */
+    private boolean isPrefixPossible() {
+        return length == 0 || pathNodes[pathLength - 1] != CardTypeTable.NO_NODE;
+    }
+
+    private void addContribution(char c, int position, int sign) {
+        if (c < '0' || c > '9') {
+            invalidCharCount += sign;
+            return;
+        }
+        int digit = c - '0';
+        int doubled = digit * 2;
+        if (doubled > 9) {
+            doubled -= 9;
+        }
+        if ((position & 1) == 0) {
+            evenDoubledSum += sign * doubled;
+            oddDoubledSum += sign * digit;
+        } else {
+            evenDoubledSum += sign * digit;
+            oddDoubledSum += sign * doubled;
+        }
+    }
+
+    /**
+     * Drops the prefix path from index on and walks it again
+     */
+    private void truncatePath(int index) {
+        if (pathLength > index) {
+            pathLength = index;
+        }
+        syncPath();
+    }
+
+    /**
+     * Walks the prefix path forward until it covers every character or falls off the table. The
+     * walk stops at the first character without a trie node, so it never goes deeper than the
+     * table and an append costs at most one step.
+     */
+    private void syncPath() {
+        while (pathLength < length
+                && (pathLength == 0 || pathNodes[pathLength - 1] != CardTypeTable.NO_NODE)) {
+            int previousNode = pathLength == 0 ? cardTypeTable.rootNode() : pathNodes[pathLength - 1];
+            CardType previousType = pathLength == 0 ? getRootType() : pathTypes[pathLength - 1];
+            char c = chars[pathLength];
+
+            int node = c >= '0' && c <= '9'
+                    ? cardTypeTable.nextNode(previousNode, c - '0')
+                    : CardTypeTable.NO_NODE;
+            CardType nodeType = node != CardTypeTable.NO_NODE ? cardTypeTable.nodeType(node) : null;
+
+            pathNodes[pathLength] = node;
+            pathTypes[pathLength] = nodeType != null ? nodeType : previousType;
+            pathLength++;
+        }
+    }
+
+    private CardType getRootType() {
+        CardType rootType = cardTypeTable.nodeType(cardTypeTable.rootNode());
+        return rootType != null ? rootType : CardType.OTHER;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            int newCapacity = Math.max(capacity, chars.length * 2);
+            chars = Arrays.copyOf(chars, newCapacity);
+            pathNodes = Arrays.copyOf(pathNodes, newCapacity);
+            pathTypes = Arrays.copyOf(pathTypes, newCapacity);
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + size);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.xendit;
+
+import android.app.Activity;
+import android.app.Application;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ActivityFinishWatcherTests {
+
+    private static final class FakeApplication extends Application {
+        final List<ActivityLifecycleCallbacks> callbacks = new ArrayList<>();
+
+        @Override
+        public void registerActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+            callbacks.add(callback);
+        }
+
+        @Override
+        public void unregisterActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+            callbacks.remove(callback);
+        }
+
+        void destroy(Activity activity) {
+            for (ActivityLifecycleCallbacks callback : new ArrayList<>(callbacks)) {
+                callback.onActivityDestroyed(activity);
+            }
+        }
+    }
+
+    private static final class FakeActivity extends Activity {
+        boolean finishing;
+
+        @Override
+        public boolean isFinishing() {
+            return finishing;
+        }
+    }
+
+    @Test
+    public void recreate_shouldKeepTheCallbackCountFlat() {
+        FakeApplication application = new FakeApplication();
+        AtomicInteger finished = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            FakeActivity activity = new FakeActivity();
+            ActivityFinishWatcher.watch(application, activity, counting(finished));
+            assertThat(application.callbacks).hasSize(1);
+            // rotated, destroyed without finishing
+            application.destroy(activity);
+        }
+
+        assertThat(application.callbacks).isEmpty();
+        assertThat(finished.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void finish_shouldRunTheTaskOnce() {
+        FakeApplication application = new FakeApplication();
+        FakeActivity other = new FakeActivity();
+        FakeActivity activity = new FakeActivity();
+        AtomicInteger finished = new AtomicInteger();
+        ActivityFinishWatcher.watch(application, activity, counting(finished));
+
+        other.finishing = true;
+        application.destroy(other);
+        assertThat(finished.get()).isEqualTo(0);
+
+        activity.finishing = true;
+        application.destroy(activity);
+        application.destroy(activity);
+
+        assertThat(finished.get()).isEqualTo(1);
+        assertThat(application.callbacks).isEmpty();
+    }
+
+    private static Runnable counting(final AtomicInteger count) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.xendit;
+
+import android.content.Context;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class AuthenticationResultsTests {
+
+    private static final class RecordingReceiver implements AuthenticationResults.Receiver {
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void onResult(Context context, String message) {
+            messages.add(message);
+        }
+    }
+
+    @Test
+    public void deliver_shouldReachOnlyTheReceiverOfTheId() {
+        RecordingReceiver first = new RecordingReceiver();
+        RecordingReceiver second = new RecordingReceiver();
+        String firstId = AuthenticationResults.register(first);
+        String secondId = AuthenticationResults.register(second);
+
+        AuthenticationResults.deliver(secondId, null, "second");
+        AuthenticationResults.deliver(firstId, null, "first");
+
+        assertThat(firstId).isNotEqualTo(secondId);
+        assertThat(first.messages).containsExactly("first");
+        assertThat(second.messages).containsExactly("second");
+    }
+
+    @Test
+    public void deliver_shouldDropLaterResults() {
+        RecordingReceiver receiver = new RecordingReceiver();
+        String id = AuthenticationResults.register(receiver);
+
+        AuthenticationResults.deliver(id, null, "result");
+        AuthenticationResults.deliver(id, null, "back pressed");
+
+        assertThat(receiver.messages).containsExactly("result");
+        assertThat(AuthenticationResults.claim(id)).isNull();
+    }
+
+    @Test
+    public void claim_shouldReturnTheReceiverUntilItsResult() {
+        RecordingReceiver receiver = new RecordingReceiver();
+        String id = AuthenticationResults.register(receiver);
+
+        assertThat(AuthenticationResults.claim(id)).isSameAs(receiver);
+        // claimed again by the activity recreated after a configuration change
+        assertThat(AuthenticationResults.claim(id)).isSameAs(receiver);
+        AuthenticationResults.deliver(id, null, "result");
+
+        assertThat(receiver.messages).containsExactly("result");
+    }
+
+    @Test
+    public void unregister_shouldDropTheResult() {
+        RecordingReceiver receiver = new RecordingReceiver();
+        String id = AuthenticationResults.register(receiver);
+
+        AuthenticationResults.unregister(id);
+        AuthenticationResults.deliver(id, null, "result");
+
+        assertThat(AuthenticationResults.claim(id)).isNull();
+        assertThat(receiver.messages).isEmpty();
+    }
+}
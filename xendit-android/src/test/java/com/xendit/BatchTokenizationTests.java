@@ -0,0 +1,154 @@
+package com.xendit;
+
+import com.xendit.Models.Card;
+import com.xendit.Models.Token;
+import com.xendit.Models.XenditError;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class BatchTokenizationTests {
+
+    private final List<String> results = new ArrayList<>();
+    private final BatchTokenCallback callback = new BatchTokenCallback() {
+        @Override
+        public void onSuccess(int index, Token token) {
+            results.add(index + " success");
+        }
+
+        @Override
+        public void onError(int index, XenditError error) {
+            results.add(index + " " + error.getErrorMessage());
+        }
+
+        @Override
+        public void onComplete(int successCount, int errorCount, long elapsedMillis) {
+            results.add("complete " + successCount + "/" + errorCount);
+        }
+    };
+
+    /**
+     * Holds the callbacks back so the test decides when each card completes
+     */
+    private static final class PendingTokenizer implements BatchTokenization.Tokenizer {
+        final List<TokenCallback> inFlight = new ArrayList<>();
+
+        @Override
+        public void tokenize(Card card, TokenCallback callback) {
+            inFlight.add(callback);
+        }
+    }
+
+    private static List<Card> cards(int count) {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cards.add(new Card("4000000000000002", "12", "2030", "123"));
+        }
+        return cards;
+    }
+
+    @Test
+    public void start_shouldBoundTheCardsInFlight() {
+        PendingTokenizer tokenizer = new PendingTokenizer();
+        new BatchTokenization(cards(5), 2, callback).start(tokenizer);
+        assertThat(tokenizer.inFlight).hasSize(2);
+
+        tokenizer.inFlight.get(1).onError(new XenditError("declined"));
+
+        assertThat(tokenizer.inFlight).hasSize(3);
+        assertThat(results).containsExactly("1 declined");
+    }
+
+    @Test
+    public void start_shouldCompleteOnceEveryCardHasAResult() {
+        PendingTokenizer tokenizer = new PendingTokenizer();
+        new BatchTokenization(cards(3), 2, callback).start(tokenizer);
+
+        tokenizer.inFlight.get(0).onError(new XenditError("declined"));
+        tokenizer.inFlight.get(2).onError(new XenditError("expired"));
+        assertThat(results).doesNotContain("complete 0/3");
+        tokenizer.inFlight.get(1).onError(new XenditError("invalid"));
+
+        assertThat(results).containsExactly("0 declined", "2 expired", "1 invalid", "complete 0/3").inOrder();
+    }
+
+    @Test
+    public void start_shouldNotRecurseOnSynchronousResults() {
+        new BatchTokenization(cards(100000), 4, callback).start(new BatchTokenization.Tokenizer() {
+            @Override
+            public void tokenize(Card card, TokenCallback tokenCallback) {
+                tokenCallback.onError(new XenditError("invalid"));
+            }
+        });
+
+        assertThat(results).hasSize(100001);
+        assertThat(results.get(100000)).isEqualTo("complete 0/100000");
+    }
+
+    @Test
+    public void start_shouldFailACardWhoseTokenizerThrows() {
+        new BatchTokenization(cards(2), 1, callback).start(new BatchTokenization.Tokenizer() {
+            @Override
+            public void tokenize(Card card, TokenCallback tokenCallback) {
+                throw new IllegalStateException("broken");
+            }
+        });
+
+        assertThat(results).containsExactly("0 broken", "1 broken", "complete 0/2").inOrder();
+    }
+
+    @Test
+    public void start_shouldNotStallWhenTheCallbackThrows() {
+        BatchTokenCallback throwing = new BatchTokenCallback() {
+            @Override
+            public void onSuccess(int index, Token token) {
+                callback.onSuccess(index, token);
+            }
+
+            @Override
+            public void onError(int index, XenditError error) {
+                callback.onError(index, error);
+                throw new IllegalStateException("app bug");
+            }
+
+            @Override
+            public void onComplete(int successCount, int errorCount, long elapsedMillis) {
+                callback.onComplete(successCount, errorCount, elapsedMillis);
+            }
+        };
+
+        try {
+            new BatchTokenization(cards(3), 1, throwing).start(new BatchTokenization.Tokenizer() {
+                @Override
+                public void tokenize(Card card, TokenCallback tokenCallback) {
+                    tokenCallback.onError(new XenditError("invalid"));
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessageThat().isEqualTo("app bug");
+        }
+
+        assertThat(results).containsExactly("0 invalid", "1 invalid", "2 invalid", "complete 0/3").inOrder();
+    }
+
+    @Test
+    public void start_shouldCompleteAnEmptyBatch() {
+        new BatchTokenization(Collections.<Card>emptyList(), 4, callback).start(new PendingTokenizer());
+
+        assertThat(results).containsExactly("complete 0/0");
+    }
+
+    @Test
+    public void fail_shouldFailEveryCard() {
+        new BatchTokenization(cards(2), 4, callback).fail(new XenditError("offline"));
+
+        assertThat(results).containsExactly("0 offline", "1 offline", "complete 0/2").inOrder();
+    }
+}
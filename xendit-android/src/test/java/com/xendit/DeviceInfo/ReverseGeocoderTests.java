@@ -0,0 +1,28 @@
+package com.xendit.DeviceInfo;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ReverseGeocoderTests {
+
+    @Test
+    public void cellKey_shouldMatchForNearbyCoordinates() {
+        assertThat(ReverseGeocoder.cellKey(-6.20001, 106.81661))
+                .isEqualTo(ReverseGeocoder.cellKey(-6.20034, 106.81689));
+    }
+
+    @Test
+    public void cellKey_shouldDifferForDistantCoordinates() {
+        assertThat(ReverseGeocoder.cellKey(-6.2000, 106.8166))
+                .isNotEqualTo(ReverseGeocoder.cellKey(-6.2010, 106.8166));
+        assertThat(ReverseGeocoder.cellKey(-6.2000, 106.8166))
+                .isNotEqualTo(ReverseGeocoder.cellKey(-6.2000, 106.8176));
+    }
+
+    @Test
+    public void cellKey_shouldNotMergeHemispheres() {
+        assertThat(ReverseGeocoder.cellKey(0.0004, 0.0004))
+                .isNotEqualTo(ReverseGeocoder.cellKey(-0.0006, -0.0006));
+    }
+}
@@ -0,0 +1,111 @@
+package com.xendit;
+
+import org.junit.Test;
+
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class InFlightOperationsTests {
+
+    @Test
+    public void join_shouldShareAnOperationInFlight() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+
+        InFlightOperations.Operation<String> first = operations.join("key", "first", 0);
+        InFlightOperations.Operation<String> second = operations.join("key", "second", 1);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNull();
+        assertThat(operations.complete(first)).containsExactly("first", "second").inOrder();
+    }
+
+    @Test
+    public void join_shouldStartANewOperationOnceCompleted() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+        InFlightOperations.Operation<String> first = operations.join("key", "first", 0);
+        operations.complete(first);
+
+        InFlightOperations.Operation<String> second = operations.join("key", "second", 1);
+
+        assertThat(second).isNotNull();
+        assertThat(second.idempotencyKey).isNotEqualTo(first.idempotencyKey);
+        assertThat(operations.complete(first)).isEmpty();
+        assertThat(operations.complete(second)).containsExactly("second");
+    }
+
+    @Test
+    public void join_shouldNotJoinAnAbandonedOperation() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+        InFlightOperations.Operation<String> abandoned = operations.join("key", "first", 0);
+
+        InFlightOperations.Operation<String> second = operations.join("key", "second", InFlightOperations.MAX_AGE_MILLIS);
+        // completing the abandoned operation late leaves the new one in flight
+        operations.complete(abandoned);
+
+        assertThat(second).isNotNull();
+        assertThat(operations.join("key", "third", InFlightOperations.MAX_AGE_MILLIS + 1)).isNull();
+        assertThat(operations.complete(second)).containsExactly("second", "third").inOrder();
+    }
+
+    @Test
+    public void leave_shouldReturnTheFutureOnlyOnceTheLastCallerLeft() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+        InFlightOperations.Operation<String> operation = operations.join("key", "first", 0);
+        operations.join("key", "second", 1);
+        XenditFuture<String> future = new XenditFuture<>();
+        assertThat(operations.start(operation, future)).isTrue();
+
+        assertThat(operations.leave("first")).isNull();
+        // the caller still in flight gets the result
+        assertThat(operations.complete(operation)).containsExactly("second");
+    }
+
+    @Test
+    public void leave_shouldEndTheOperationWithItsLastCaller() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+        InFlightOperations.Operation<String> operation = operations.join("key", "first", 0);
+        operations.join("key", "second", 1);
+        XenditFuture<String> future = new XenditFuture<>();
+        operations.start(operation, future);
+
+        operations.leave("second");
+        Future<?> abandoned = operations.leave("first");
+
+        assertThat(abandoned).isSameAs(future);
+        assertThat(operations.join("key", "third", 2)).isNotNull();
+        assertThat(operations.leave("unknown")).isNull();
+    }
+
+    @Test
+    public void leave_shouldFindAReplacedOperation() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+        InFlightOperations.Operation<String> replaced = operations.join("key", "first", 0);
+        XenditFuture<String> future = new XenditFuture<>();
+        operations.start(replaced, future);
+        InFlightOperations.Operation<String> second = operations.join("key", "second", InFlightOperations.MAX_AGE_MILLIS);
+
+        assertThat(operations.leave("first")).isSameAs(future);
+        // the new operation is still joined
+        assertThat(operations.join("key", "third", InFlightOperations.MAX_AGE_MILLIS + 1)).isNull();
+        assertThat(operations.complete(second)).containsExactly("second", "third").inOrder();
+    }
+
+    @Test
+    public void start_shouldFailOnceEveryCallerLeft() {
+        InFlightOperations<String> operations = new InFlightOperations<>();
+        InFlightOperations.Operation<String> operation = operations.join("key", "first", 0);
+
+        assertThat(operations.leave("first")).isNull();
+
+        assertThat(operations.start(operation, new XenditFuture<String>())).isFalse();
+    }
+
+    @Test
+    public void key_shouldSeparateParameters() {
+        assertThat(InFlightOperations.key("ab", "c")).isNotEqualTo(InFlightOperations.key("a", "bc"));
+        assertThat(InFlightOperations.key("4000000000000002", "10000"))
+                .isEqualTo(InFlightOperations.key("4000000000000002", "10000"));
+        assertThat(InFlightOperations.key("4000000000000002")).doesNotContain("4000000000000002");
+    }
+}
@@ -0,0 +1,88 @@
+package com.xendit.Logger;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LogRingBufferTests {
+
+    @Test
+    public void capacity_shouldRoundUpToPowerOfTwo() {
+        assertThat(new LogRingBuffer(500).capacity()).isEqualTo(512);
+        assertThat(new LogRingBuffer(512).capacity()).isEqualTo(512);
+        assertThat(new LogRingBuffer(1).capacity()).isEqualTo(2);
+    }
+
+    @Test
+    public void offer_shouldFailWhenFull() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(line(i))).isTrue();
+        }
+
+        assertThat(buffer.offer(line(4))).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void poll_shouldReturnLinesInOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                buffer.offer(line(round * 4 + i));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.poll().timestamp).isEqualTo(round * 4 + i);
+            }
+        }
+
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void offer_shouldNotLoseLinesWithConcurrentProducers() throws InterruptedException {
+        final LogRingBuffer buffer = new LogRingBuffer(1 << 14);
+        final int producers = 4;
+        final int linesPerProducer = 4000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < linesPerProducer; i++) {
+                        buffer.offer(line(producer * linesPerProducer + i));
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Long> seen = new HashSet<>();
+        LogLine line;
+        while ((line = buffer.poll()) != null) {
+            seen.add(line.timestamp);
+        }
+        assertThat(seen).hasSize(producers * linesPerProducer);
+    }
+
+    private static LogLine line(long timestamp) {
+        return new LogLine(timestamp, "line " + timestamp, "Info");
+    }
+}
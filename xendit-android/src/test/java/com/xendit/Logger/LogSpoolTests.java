@@ -0,0 +1,91 @@
+package com.xendit.Logger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LogSpoolTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void drain_shouldSendBatchesOldestFirst() throws IOException {
+        LogSpool spool = new LogSpool(new File(folder.getRoot(), "spool"), 1024, 4);
+        spool.append("{\"lines\":[1]}");
+        spool.append("{\"lines\":[2]}");
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE);
+
+        assertThat(spool.drain(sender)).isTrue();
+        assertThat(sender.sent).containsExactly("{\"lines\":[1]}", "{\"lines\":[2]}").inOrder();
+        assertThat(spool.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void drain_shouldKeepUnsentBatches() throws IOException {
+        LogSpool spool = new LogSpool(new File(folder.getRoot(), "spool"), 1024, 4);
+        for (int i = 0; i < 5; i++) {
+            spool.append("batch " + i);
+        }
+
+        assertThat(spool.drain(new RecordingSender(2))).isFalse();
+
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE);
+        assertThat(spool.drain(sender)).isTrue();
+        assertThat(sender.sent).containsExactly("batch 2", "batch 3", "batch 4").inOrder();
+    }
+
+    @Test
+    public void append_shouldRotateAndDeleteOldestFiles() throws IOException {
+        File directory = new File(folder.getRoot(), "spool");
+        // every file holds two batches of 8 bytes
+        LogSpool spool = new LogSpool(directory, 16, 3);
+        for (int i = 0; i < 10; i++) {
+            spool.append("batch " + i);
+        }
+
+        assertThat(directory.listFiles()).hasLength(3);
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE);
+        spool.drain(sender);
+        assertThat(sender.sent).containsExactly("batch 4", "batch 5", "batch 6", "batch 7", "batch 8", "batch 9").inOrder();
+    }
+
+    @Test
+    public void drain_shouldReadBatchesSpooledByAnotherInstance() throws IOException {
+        File directory = new File(folder.getRoot(), "spool");
+        new LogSpool(directory, 1024, 4).append("before process death");
+
+        LogSpool spool = new LogSpool(directory, 1024, 4);
+        spool.append("after restart");
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE);
+
+        assertThat(spool.drain(sender)).isTrue();
+        assertThat(sender.sent).containsExactly("before process death", "after restart").inOrder();
+    }
+
+    private static class RecordingSender implements LogSpool.Sender {
+        final List<String> sent = new ArrayList<>();
+        private int remaining;
+
+        RecordingSender(int successes) {
+            remaining = successes;
+        }
+
+        @Override
+        public boolean send(String batch) {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            sent.add(batch);
+            return true;
+        }
+    }
+}
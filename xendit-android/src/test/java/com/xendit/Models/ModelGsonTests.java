@@ -0,0 +1,85 @@
+package com.xendit.Models;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ModelGsonTests {
+
+    private static final String AUTHENTICATION = "{"
+            + "\"id\":\"5b2a3d7c8b2e4a4e2f1c9a11\","
+            + "\"status\":\"IN_REVIEW\","
+            + "\"authentication_id\":\"5b2a3d7c8b2e4a4e2f1c9a12\","
+            + "\"payer_authentication_url\":\"https://api.xendit.co/render\","
+            + "\"masked_card_number\":\"400000XXXXXX0002\","
+            + "\"extra\":{\"nested\":[1,2,3]}}";
+
+    @Test
+    public void authentication_shouldReadEveryField() {
+        Authentication authentication = ModelGson.get().fromJson(AUTHENTICATION, Authentication.class);
+
+        assertThat(authentication.getId()).isEqualTo("5b2a3d7c8b2e4a4e2f1c9a11");
+        assertThat(authentication.getStatus()).isEqualTo("IN_REVIEW");
+        assertThat(authentication.getAuthenticationId()).isEqualTo("5b2a3d7c8b2e4a4e2f1c9a12");
+        assertThat(authentication.getPayerAuthenticationUrl()).isEqualTo("https://api.xendit.co/render");
+        assertThat(authentication.getMaskedCardNumber()).isEqualTo("400000XXXXXX0002");
+    }
+
+    @Test
+    public void tokenConfiguration_shouldReadWhatReflectionWrote() {
+        TokenConfiguration configuration = ModelGson.get().fromJson("{"
+                + "\"tokenization_auth_key_id\":\"key\","
+                + "\"flex_api_key\":\"api\","
+                + "\"flex_production_url\":null}", TokenConfiguration.class);
+
+        // cached by older versions with a reflective Gson
+        String stored = new Gson().toJson(configuration);
+        TokenConfiguration restored = ModelGson.get().fromJson(stored, TokenConfiguration.class);
+
+        assertThat(restored.getTokenizationAuthKeyId()).isEqualTo("key");
+        assertThat(restored.getFlexApiKey()).isEqualTo("api");
+        assertThat(restored.getFlexProductionUrl()).isNull();
+        assertThat(restored.getFlexDevelopmentUrl()).isNull();
+        assertThat(ModelGson.get().toJson(restored)).isEqualTo(stored);
+    }
+
+    @Test
+    public void tokenCreditCard_shouldReadNumbersAndStrings() {
+        TokenCreditCard creditCard = ModelGson.get().fromJson("{"
+                + "\"keyId\":\"key\","
+                + "\"token\":\"4111111111111111\","
+                + "\"maskedPan\":\"411111XXXXXX1111\","
+                + "\"cardType\":\"001\","
+                + "\"timestamp\":1527142813964,"
+                + "\"signedFields\":\"token,cardType\","
+                + "\"signature\":\"sig\"}", TokenCreditCard.class);
+
+        assertThat(creditCard.getToken()).isEqualTo("4111111111111111");
+        assertThat(creditCard.getMaskedPan()).isEqualTo("411111XXXXXX1111");
+        assertThat(creditCard.getCardType()).isEqualTo("001");
+        assertThat(creditCard.getTimestamp()).isEqualTo(1527142813964L);
+        assertThat(creditCard.getSignedFields()).isEqualTo("token,cardType");
+        assertThat(creditCard.getSignature()).isEqualTo("sig");
+    }
+
+    @Test
+    public void errorResponse_shouldReadApiAndFlexShapes() {
+        ErrorResponse apiError = ModelGson.get().fromJson(
+                "{\"error_code\":\"API_VALIDATION_ERROR\",\"message\":\"Invalid card\"}", ErrorResponse.class);
+        ErrorResponse flexError = ModelGson.get().fromJson(
+                "{\"responseStatus\":{\"status\":400,\"reason\":\"VALIDATION_ERROR\",\"message\":\"Invalid\"}}",
+                ErrorResponse.class);
+        ErrorResponse failure = ModelGson.get().fromJson(
+                "{\"id\":\"1\",\"status\":\"FAILED\",\"failure_reason\":\"AUTHENTICATION_FAILED\"}",
+                ErrorResponse.class);
+
+        assertThat(apiError.getErrorCode()).isEqualTo("API_VALIDATION_ERROR");
+        assertThat(apiError.getMessage()).isEqualTo("Invalid card");
+        assertThat(flexError.getErrorCode()).isEqualTo("VALIDATION_ERROR");
+        assertThat(flexError.getMessage()).isEqualTo("Invalid");
+        assertThat(failure.getFailureReason()).isEqualTo("AUTHENTICATION_FAILED");
+        assertThat(failure.getErrorCode()).isNull();
+    }
+}
@@ -0,0 +1,60 @@
+package com.xendit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TokenizationTimingTests {
+
+    private static final long START = TimeUnit.SECONDS.toNanos(100);
+
+    private static long at(long millis) {
+        return START + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void timing_shouldMeasureOverlappingStages() {
+        TokenizationTiming timing = new TokenizationTiming(START);
+        timing.start(TokenizationTiming.Stage.CONFIGURATION, at(0));
+        timing.start(TokenizationTiming.Stage.PREPARATION, at(1));
+        timing.end(TokenizationTiming.Stage.PREPARATION, at(3));
+        timing.end(TokenizationTiming.Stage.CONFIGURATION, at(120));
+        timing.start(TokenizationTiming.Stage.TOKENIZE_CARD, at(120));
+        timing.end(TokenizationTiming.Stage.TOKENIZE_CARD, at(300));
+        timing.start(TokenizationTiming.Stage.CREATE_TOKEN, at(300));
+        timing.end(TokenizationTiming.Stage.CREATE_TOKEN, at(450));
+        timing.finish(at(450));
+
+        assertThat(timing.getStageMillis(TokenizationTiming.Stage.CONFIGURATION)).isEqualTo(120L);
+        assertThat(timing.getStageMillis(TokenizationTiming.Stage.PREPARATION)).isEqualTo(2L);
+        assertThat(timing.getStageStartMillis(TokenizationTiming.Stage.PREPARATION)).isEqualTo(1L);
+        assertThat(timing.getStageStartMillis(TokenizationTiming.Stage.CREATE_TOKEN)).isEqualTo(300L);
+        assertThat(timing.getTotalMillis()).isEqualTo(450L);
+    }
+
+    @Test
+    public void timing_shouldReportStagesNotReached() {
+        TokenizationTiming timing = new TokenizationTiming(START);
+        timing.start(TokenizationTiming.Stage.TOKENIZE_CARD, at(10));
+
+        assertThat(timing.getStageMillis(TokenizationTiming.Stage.TOKENIZE_CARD)).isEqualTo(-1L);
+        assertThat(timing.getStageStartMillis(TokenizationTiming.Stage.CREATE_TOKEN)).isEqualTo(-1L);
+        assertThat(timing.getTotalMillis()).isEqualTo(-1L);
+        assertThat(timing.toString()).contains("tokenize_card=-1ms@10ms");
+    }
+
+    @Test
+    public void timing_shouldMeasureStagesMarkedAtNanoTimeZero() {
+        // nanoTime has an arbitrary origin, 0 is a valid reading
+        TokenizationTiming timing = new TokenizationTiming(-TimeUnit.MILLISECONDS.toNanos(5));
+        timing.start(TokenizationTiming.Stage.CONFIGURATION, 0);
+        timing.end(TokenizationTiming.Stage.CONFIGURATION, TimeUnit.MILLISECONDS.toNanos(20));
+        timing.finish(0);
+
+        assertThat(timing.getStageStartMillis(TokenizationTiming.Stage.CONFIGURATION)).isEqualTo(5L);
+        assertThat(timing.getStageMillis(TokenizationTiming.Stage.CONFIGURATION)).isEqualTo(20L);
+        assertThat(timing.getTotalMillis()).isEqualTo(5L);
+    }
+}
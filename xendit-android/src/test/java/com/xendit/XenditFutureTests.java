@@ -0,0 +1,218 @@
+package com.xendit;
+
+import com.xendit.Models.XenditError;
+import com.xendit.Models.XenditException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class XenditFutureTests {
+
+    @Test
+    public void transformAsync_shouldChainTheSteps() throws Exception {
+        XenditFuture<String> first = new XenditFuture<>();
+        final XenditFuture<Integer> second = new XenditFuture<>();
+        XenditFuture<Integer> chained = first.transformAsync(new XenditFuture.AsyncFunction<String, Integer>() {
+            @Override
+            public XenditFuture<Integer> apply(String input) {
+                return second;
+            }
+        }, XenditFuture.directExecutor()).transform(new XenditFuture.Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return input * 2;
+            }
+        }, XenditFuture.directExecutor());
+
+        first.set("configuration");
+        assertThat(chained.isDone()).isFalse();
+        second.set(21);
+
+        assertThat(chained.get()).isEqualTo(42);
+    }
+
+    @Test
+    public void transform_shouldSkipTheStepOnError() throws Exception {
+        XenditFuture<String> first = new XenditFuture<>();
+        XenditFuture<String> chained = first.transform(new XenditFuture.Function<String, String>() {
+            @Override
+            public String apply(String input) {
+                throw new AssertionError("not called on error");
+            }
+        }, XenditFuture.directExecutor());
+
+        first.setError(new XenditError("NETWORK_ERROR", "offline"));
+
+        try {
+            chained.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(((XenditException) e.getCause()).getError().getErrorCode()).isEqualTo("NETWORK_ERROR");
+        }
+    }
+
+    @Test
+    public void transform_shouldFailWhenTheFunctionThrows() throws Exception {
+        XenditFuture<String> first = new XenditFuture<>();
+        XenditFuture<String> chained = first.transform(new XenditFuture.Function<String, String>() {
+            @Override
+            public String apply(String input) {
+                throw new IllegalStateException("broken step");
+            }
+        }, XenditFuture.directExecutor());
+
+        first.set("configuration");
+
+        try {
+            chained.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(((XenditException) e.getCause()).getError().getErrorCode()).isEqualTo(XenditFuture.FUNCTION_ERROR);
+        }
+    }
+
+    @Test
+    public void transformAsync_shouldFailWhenTheFunctionReturnsNull() throws Exception {
+        XenditFuture<String> first = new XenditFuture<>();
+        XenditFuture<String> chained = first.transformAsync(new XenditFuture.AsyncFunction<String, String>() {
+            @Override
+            public XenditFuture<String> apply(String input) {
+                return null;
+            }
+        }, XenditFuture.directExecutor());
+
+        first.set("configuration");
+
+        try {
+            chained.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(((XenditException) e.getCause()).getError().getErrorCode()).isEqualTo(XenditFuture.FUNCTION_ERROR);
+        }
+    }
+
+    @Test
+    public void set_shouldRunEveryListenerWhenOneThrows() {
+        XenditFuture<String> future = new XenditFuture<>();
+        final List<String> ran = new ArrayList<>();
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("broken callback");
+            }
+        }, XenditFuture.directExecutor());
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                ran.add("cleanup");
+            }
+        }, XenditFuture.directExecutor());
+
+        try {
+            future.set("token");
+            fail();
+        } catch (IllegalStateException expected) {
+            // reported to the thread completing the future once every listener ran
+        }
+
+        assertThat(ran).containsExactly("cleanup");
+        assertThat(future.isDone()).isTrue();
+    }
+
+    @Test
+    public void cancel_shouldCancelTheStepsWaitedFor() {
+        XenditFuture<String> first = new XenditFuture<>();
+        final XenditFuture<String> second = new XenditFuture<>();
+        XenditFuture<String> chained = first.transformAsync(new XenditFuture.AsyncFunction<String, String>() {
+            @Override
+            public XenditFuture<String> apply(String input) {
+                return second;
+            }
+        }, XenditFuture.directExecutor());
+        first.set("configuration");
+
+        chained.cancel(false);
+
+        assertThat(second.isCancelled()).isTrue();
+        assertThat(second.set("token")).isFalse();
+    }
+
+    @Test
+    public void completingOn_shouldDropTheResultOnceCancelled() {
+        final List<Runnable> queued = new ArrayList<>();
+        Executor queue = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        };
+        XenditFuture<String> call = new XenditFuture<>();
+        XenditFuture<String> delivered = call.completingOn(queue);
+        call.set("token");
+
+        // e.g. the checkout is left while the result is posted to the main thread
+        delivered.cancel(false);
+        queued.get(0).run();
+
+        assertThat(delivered.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void withTimeout_shouldFailAndCancelTheCall() throws Exception {
+        XenditFuture<String> call = new XenditFuture<>();
+        final CountDownLatch callDone = new CountDownLatch(1);
+        call.addListener(new Runnable() {
+            @Override
+            public void run() {
+                callDone.countDown();
+            }
+        }, XenditFuture.directExecutor());
+
+        XenditFuture<String> timed = call.withTimeout(10, TimeUnit.MILLISECONDS);
+
+        try {
+            timed.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(((XenditException) e.getCause()).getError().getErrorCode()).isEqualTo("REQUEST_TIMEOUT_ERROR");
+        }
+        // the call is cancelled right after the timeout failed the future
+        assertThat(callDone.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(call.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void allOf_shouldKeepTheOrderOfTheFutures() throws Exception {
+        XenditFuture<String> first = new XenditFuture<>();
+        XenditFuture<String> second = new XenditFuture<>();
+        XenditFuture<List<String>> all = XenditFuture.allOf(Arrays.asList(first, second));
+
+        second.set("b");
+        assertThat(all.isDone()).isFalse();
+        first.set("a");
+
+        assertThat(all.get()).containsExactly("a", "b").inOrder();
+    }
+
+    @Test
+    public void allOf_shouldFailWithTheFirstError() {
+        XenditFuture<String> first = new XenditFuture<>();
+        XenditFuture<String> second = new XenditFuture<>();
+        XenditFuture<List<String>> all = XenditFuture.allOf(Arrays.asList(first, second));
+
+        second.setError(new XenditError("declined"));
+
+        assertThat(all.isDone()).isTrue();
+        assertThat(all.isCancelled()).isFalse();
+    }
+}
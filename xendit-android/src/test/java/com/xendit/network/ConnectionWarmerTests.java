@@ -0,0 +1,31 @@
+package com.xendit.network;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ConnectionWarmerTests {
+
+    @Test
+    public void startWarmUp_shouldWarmUpOncePerKeepAlive() {
+        String url = "https://api.xendit.co/keep-alive";
+
+        assertThat(ConnectionWarmer.startWarmUp(url, 1000)).isTrue();
+        assertThat(ConnectionWarmer.startWarmUp(url, 1000 + ConnectionWarmer.KEEP_ALIVE_MILLIS - 1)).isFalse();
+        assertThat(ConnectionWarmer.startWarmUp(url, 1000 + ConnectionWarmer.KEEP_ALIVE_MILLIS)).isTrue();
+    }
+
+    @Test
+    public void startWarmUp_shouldTrackEveryUrl() {
+        assertThat(ConnectionWarmer.startWarmUp("https://api.xendit.co/a", 1000)).isTrue();
+        assertThat(ConnectionWarmer.startWarmUp("https://flex.example.com/b", 1000)).isTrue();
+    }
+
+    @Test
+    public void startWarmUp_shouldWarmUpAgainOnceTheClockWentBack() {
+        String url = "https://api.xendit.co/clock";
+
+        assertThat(ConnectionWarmer.startWarmUp(url, 10000)).isTrue();
+        assertThat(ConnectionWarmer.startWarmUp(url, 5000)).isTrue();
+    }
+}
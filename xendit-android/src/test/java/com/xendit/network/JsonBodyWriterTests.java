@@ -0,0 +1,92 @@
+package com.xendit.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class JsonBodyWriterTests {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void write_shouldMatchTheJsonObjectTree() {
+        byte[] body = JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("keyId").value("08wNmD5sfVHo2TKL1i9bbBvlYqXkNfZm");
+                writer.name("cardInfo").beginObject();
+                writer.name("cardNumber").value("4000000000000002");
+                writer.name("cardType").value((String) null);
+                writer.endObject();
+                writer.name("amount").value("75000");
+            }
+        });
+
+        JsonObject cardInfo = new JsonObject();
+        cardInfo.addProperty("cardNumber", "4000000000000002");
+        cardInfo.addProperty("cardType", (String) null);
+        JsonObject expected = new JsonObject();
+        expected.addProperty("keyId", "08wNmD5sfVHo2TKL1i9bbBvlYqXkNfZm");
+        expected.add("cardInfo", cardInfo);
+        expected.addProperty("amount", "75000");
+
+        assertThat(new JsonParser().parse(new String(body, UTF_8)))
+                .isEqualTo(new JsonParser().parse(new Gson().toJson(expected)));
+    }
+
+    @Test
+    public void write_shouldEncodeUtf8() {
+        final String name = "Café ☕ 💳";
+
+        byte[] body = JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("name").value(name);
+            }
+        });
+
+        assertThat(body).isEqualTo(("{\"name\":\"" + name + "\"}").getBytes(UTF_8));
+    }
+
+    @Test
+    public void write_shouldNotLeakThePreviousBody() {
+        final StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longValue.append("4000000000000002");
+        }
+        JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("cardNumber").value(longValue.toString());
+            }
+        });
+
+        byte[] body = JsonBodyWriter.write(new JsonBodyWriter.Body() {
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.name("amount").value("1");
+            }
+        });
+
+        assertThat(new String(body, UTF_8)).isEqualTo("{\"amount\":\"1\"}");
+    }
+
+    @Test
+    public void clear_shouldEmptyTheBuffer() {
+        JsonBodyWriter.Utf8Buffer buffer = new JsonBodyWriter.Utf8Buffer();
+        buffer.write("4000000000000002", 0, 16);
+
+        buffer.clear();
+        buffer.write("1", 0, 1);
+
+        assertThat(buffer.toByteArray()).isEqualTo(new byte[]{'1'});
+    }
+}
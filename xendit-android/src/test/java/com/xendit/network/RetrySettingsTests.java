@@ -0,0 +1,56 @@
+package com.xendit.network;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RetrySettingsTests {
+
+    @Test
+    public void backoffMs_shouldStayWithinTheExponentialCap() {
+        RetrySettings settings = new RetrySettings.Builder().backoffMs(100, 1000).build();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(settings.backoffMs(0, random)).isAtMost(100L);
+            assertThat(settings.backoffMs(2, random)).isAtMost(400L);
+            assertThat(settings.backoffMs(10, random)).isAtMost(1000L);
+            assertThat(settings.backoffMs(100, random)).isAtMost(1000L);
+            assertThat(settings.backoffMs(100, random)).isAtLeast(0L);
+        }
+    }
+
+    @Test
+    public void backoffMs_shouldBeJittered() {
+        RetrySettings settings = new RetrySettings.Builder().backoffMs(1000, 1000).build();
+        Random random = new Random(42);
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long backoffMs = settings.backoffMs(0, random);
+            min = Math.min(min, backoffMs);
+            max = Math.max(max, backoffMs);
+        }
+
+        assertThat(min).isLessThan(100L);
+        assertThat(max).isGreaterThan(900L);
+    }
+
+    @Test
+    public void newBuilder_shouldKeepTheOtherSettings() {
+        RetrySettings settings = RetrySettings.DEFAULT.newBuilder().connectTimeoutMs(1234).build();
+
+        assertThat(settings.getConnectTimeoutMs()).isEqualTo(1234);
+        assertThat(settings.getReadTimeoutMs()).isEqualTo(RetrySettings.DEFAULT.getReadTimeoutMs());
+        assertThat(settings.getMaxRetries()).isEqualTo(RetrySettings.DEFAULT.getMaxRetries());
+        assertThat(RetrySettings.NO_RETRY.getMaxRetries()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backoffMs_shouldRejectACapBelowTheInitialBackoff() {
+        new RetrySettings.Builder().backoffMs(1000, 100);
+    }
+}
@@ -0,0 +1,53 @@
+package com.xendit.network.errors;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.VolleyError;
+import com.xendit.Models.ErrorResponse;
+import com.xendit.Models.XenditError;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class NetworkErrorTests {
+
+    @Test
+    public void getErrorResponse_shouldParseTheBodyOnce() {
+        NetworkError error = new NetworkError(new VolleyError(response(400,
+                "{\"error_code\":\"API_VALIDATION_ERROR\",\"message\":\"Card number is invalid\"}")));
+
+        ErrorResponse errorResponse = error.getErrorResponse();
+
+        assertThat(error.responseCode).isEqualTo(400);
+        assertThat(errorResponse.getErrorCode()).isEqualTo("API_VALIDATION_ERROR");
+        assertThat(errorResponse.getMessage()).isEqualTo("Card number is invalid");
+        assertThat(error.getErrorResponse()).isSameAs(errorResponse);
+    }
+
+    @Test
+    public void getErrorResponse_shouldBeNullForNonJsonBodies() {
+        NetworkError error = new NetworkError(new VolleyError(response(502, "<html>Bad Gateway</html>")));
+
+        assertThat(error.getErrorResponse()).isNull();
+        assertThat(new XenditError(error).getErrorCode()).isEqualTo("NETWORK_ERROR");
+    }
+
+    @Test
+    public void xenditError_shouldUseTheFlexResponseStatus() {
+        NetworkError error = new NetworkError(new VolleyError(response(400,
+                "{\"responseStatus\":{\"status\":400,\"reason\":\"VALIDATION_ERROR\",\"message\":\"Invalid key\"}}")));
+
+        XenditError xenditError = new XenditError(error);
+
+        assertThat(xenditError.getErrorCode()).isEqualTo("VALIDATION_ERROR");
+        assertThat(xenditError.getErrorMessage()).isEqualTo("Invalid key");
+    }
+
+    private static NetworkResponse response(int statusCode, String body) {
+        return new NetworkResponse(statusCode, body.getBytes(Charset.forName("UTF-8")),
+                Collections.singletonMap("Content-Type", "application/json; charset=utf-8"), false, 0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.xendit.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ByteArrayReaderTests {
+
+    private static final String TEXT = "{\"city\":\"Jakarta Selatan\",\"name\":\"Café ☕ 💳\"}";
+
+    @Test
+    public void read_shouldDecodeLikeString() throws IOException {
+        byte[] data = TEXT.getBytes("utf-8");
+
+        assertThat(readAll(new ByteArrayReader(data, "utf-8"), 1024)).isEqualTo(new String(data, "utf-8"));
+        assertThat(readAll(new ByteArrayReader(data, "ISO-8859-1"), 1024)).isEqualTo(new String(data, "ISO-8859-1"));
+    }
+
+    @Test
+    public void read_shouldSplitCharactersAcrossSmallBuffers() throws IOException {
+        byte[] data = TEXT.getBytes("utf-8");
+
+        // a surrogate pair never fits a buffer of one
+        assertThat(readAll(new ByteArrayReader(data, "utf-8"), 2)).isEqualTo(TEXT);
+        assertThat(readAll(new ByteArrayReader(data, "utf-8"), 3)).isEqualTo(TEXT);
+    }
+
+    @Test
+    public void read_shouldReplaceMalformedInput() throws IOException {
+        byte[] data = {'a', (byte) 0xC3, 'b'};
+
+        assertThat(readAll(new ByteArrayReader(data, "utf-8"), 16)).isEqualTo(new String(data, "utf-8"));
+    }
+
+    @Test(expected = UnsupportedEncodingException.class)
+    public void constructor_shouldRejectUnknownCharsets() throws UnsupportedEncodingException {
+        new ByteArrayReader(new byte[0], "not-a-charset");
+    }
+
+    private static String readAll(ByteArrayReader reader, int bufferSize) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[bufferSize];
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+}
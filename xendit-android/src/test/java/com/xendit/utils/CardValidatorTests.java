@@ -3,6 +3,7 @@ package com.xendit.utils;
 import org.junit.Test;
 
 import java.util.Calendar;
+import java.util.Random;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -14,6 +15,11 @@ import static com.google.common.truth.Truth.assertThat;
 public class CardValidatorTests {
 
     private static String VALID_CARD_NUMBER = "4012111111111111";
+    private static final String[] CORPUS_PREFIXES = {
+            "", "4", "4026", "417500", "4508", "34", "37", "51", "55", "56", "5019", "50",
+            "6011", "622126", "622925", "644", "65", "3528", "3589", "1", "0", "9"
+    };
+    private static final int CORPUS_SIZE = 200000;
 
     @Test
     public void isCardNumberValid_shouldTrimCardNumber() {
@@ -230,6 +236,66 @@ public class CardValidatorTests {
         assertThat(CardValidator.getCardType("000000000000")).isEqualTo(CardValidator.CardType.OTHER);
     }
 
+    @Test
+    public void getCardType_shouldHandlePartialNumbers() {
+        assertThat(CardValidator.getCardType("4")).isEqualTo(CardValidator.CardType.VISA);
+        assertThat(CardValidator.getCardType("4 0")).isEqualTo(CardValidator.CardType.VISA);
+        assertThat(CardValidator.getCardType("4026")).isEqualTo(CardValidator.CardType.VISA_ELECTRON);
+        assertThat(CardValidator.getCardType("37")).isEqualTo(CardValidator.CardType.AMEX);
+        assertThat(CardValidator.getCardType("52")).isEqualTo(CardValidator.CardType.MASTERCARD);
+        assertThat(CardValidator.getCardType("65")).isEqualTo(CardValidator.CardType.DISCOVER);
+        assertThat(CardValidator.getCardType("6011")).isEqualTo(CardValidator.CardType.DISCOVER);
+        assertThat(CardValidator.getCardType("3530")).isEqualTo(CardValidator.CardType.JCB);
+        assertThat(CardValidator.getCardType("5019")).isEqualTo(CardValidator.CardType.DANKORT);
+        assertThat(CardValidator.getCardType("50")).isEqualTo(CardValidator.CardType.MAESTRO);
+        assertThat(CardValidator.getCardType("3")).isEqualTo(CardValidator.CardType.OTHER);
+        assertThat(CardValidator.getCardType("")).isEqualTo(CardValidator.CardType.OTHER);
+    }
+
+    @Test
+    public void getCardType_shouldResolveRangeBoundaries() {
+        assertThat(CardValidator.getCardType("622125")).isEqualTo(CardValidator.CardType.MAESTRO);
+        assertThat(CardValidator.getCardType("622126")).isEqualTo(CardValidator.CardType.DISCOVER);
+        assertThat(CardValidator.getCardType("622500")).isEqualTo(CardValidator.CardType.DISCOVER);
+        assertThat(CardValidator.getCardType("622925")).isEqualTo(CardValidator.CardType.DISCOVER);
+        assertThat(CardValidator.getCardType("622926")).isEqualTo(CardValidator.CardType.MAESTRO);
+        assertThat(CardValidator.getCardType("3527")).isEqualTo(CardValidator.CardType.OTHER);
+        assertThat(CardValidator.getCardType("3589")).isEqualTo(CardValidator.CardType.JCB);
+        assertThat(CardValidator.getCardType("3590")).isEqualTo(CardValidator.CardType.OTHER);
+    }
+
+    @Test
+    public void getCardType_shouldResolvePartialNumbersToTheLongestPrefixSoFar() {
+        assertThat(CardValidator.getCardType("62")).isEqualTo(CardValidator.CardType.MAESTRO);
+        assertThat(CardValidator.getCardType("6221")).isEqualTo(CardValidator.CardType.MAESTRO);
+        assertThat(CardValidator.getCardType("62212")).isEqualTo(CardValidator.CardType.MAESTRO);
+        assertThat(CardValidator.getCardType("622126")).isEqualTo(CardValidator.CardType.DISCOVER);
+        assertThat(CardValidator.getCardType("6222")).isEqualTo(CardValidator.CardType.DISCOVER);
+    }
+
+    @Test
+    public void getCardType_shouldUseAddedRanges() {
+        CardTypeTable defaultTable = CardValidator.getCardTypeTable();
+        try {
+            CardValidator.setCardTypeTable(defaultTable.newBuilder()
+                    .addRange("2221", "2720", CardValidator.CardType.MASTERCARD)
+                    .build());
+            assertThat(CardValidator.getCardType("2221")).isEqualTo(CardValidator.CardType.MASTERCARD);
+            assertThat(CardValidator.getCardType("2720")).isEqualTo(CardValidator.CardType.MASTERCARD);
+            assertThat(CardValidator.getCardType("2721")).isEqualTo(CardValidator.CardType.OTHER);
+            assertThat(CardValidator.isCardNumberValid("2223003122003222")).isTrue();
+            assertThat(CardValidator.getCardType("4111111111111111")).isEqualTo(CardValidator.CardType.VISA);
+        } finally {
+            CardValidator.setCardTypeTable(defaultTable);
+        }
+        assertThat(CardValidator.isCardNumberValid("2223003122003222")).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cardTypeTable_shouldRejectRangesOfDifferentLength() {
+        CardTypeTable.DEFAULT.newBuilder().addRange("22", "272", CardValidator.CardType.MASTERCARD);
+    }
+
     @Test
     public void isCvnValidForCardType_shouldHandleAMEX() {
         assertThat(CardValidator.isCvnValidForCardType("1234", "378282246310005")).isTrue();
@@ -241,4 +307,119 @@ public class CardValidatorTests {
         assertThat(CardValidator.isCvnValidForCardType("123", "4012888888881881")).isTrue();
         assertThat(CardValidator.isCvnValidForCardType("1234", "4012888888881881")).isFalse();
     }
+
+    @Test
+    public void isCardNumberValid_shouldMatchLegacyImplementationOnGeneratedCorpus() {
+        Random random = new Random(20171022L);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            String cardNumber = randomCardNumber(random);
+            assertThat(CardValidator.isCardNumberValid(cardNumber))
+                    .named(cardNumber)
+                    .isEqualTo(LegacyCardValidator.isCardNumberValid(cardNumber));
+        }
+    }
+
+    @Test
+    public void getCardType_shouldMatchLegacyImplementationOnGeneratedCorpus() {
+        Random random = new Random(20171023L);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            // The legacy lookup needed six digits for some brands, partial input is covered below
+            String cardNumber = randomDigits(random, CORPUS_PREFIXES[random.nextInt(CORPUS_PREFIXES.length)], 6 + random.nextInt(14));
+            assertThat(CardValidator.getCardType(cardNumber))
+                    .named(cardNumber)
+                    .isEqualTo(LegacyCardValidator.getCardType(cardNumber));
+        }
+    }
+
+    @Test
+    public void cvnValidation_shouldMatchLegacyImplementationOnGeneratedCorpus() {
+        Random random = new Random(20171024L);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            String cvn = withNoise(random, randomDigits(random, "", random.nextInt(7)));
+            String cardNumber = randomCardNumber(random);
+            assertThat(CardValidator.isCvnValid(cvn))
+                    .named(cvn)
+                    .isEqualTo(LegacyCardValidator.isCvnValid(cvn));
+            assertThat(CardValidator.isCvnValidForCardType(cvn, cardNumber))
+                    .named(cvn + " / " + cardNumber)
+                    .isEqualTo(LegacyCardValidator.isCvnValidForCardType(cvn, cardNumber));
+        }
+    }
+
+    @Test
+    public void isExpiryValid_shouldMatchLegacyImplementationOnGeneratedCorpus() {
+        Random random = new Random(20171025L);
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int i = 0; i < CORPUS_SIZE / 10; i++) {
+            String month = withNoise(random, Integer.toString(random.nextInt(15) - 1));
+            String year = withNoise(random, Integer.toString(currentYear - 3 + random.nextInt(8)));
+            assertThat(CardValidator.isExpiryValid(month, year))
+                    .named(month + "/" + year)
+                    .isEqualTo(LegacyCardValidator.isExpiryValid(month, year));
+        }
+    }
+
+    @Test
+    public void cleanCardNumber_shouldMatchLegacyImplementationOnGeneratedCorpus() {
+        Random random = new Random(20171026L);
+        for (int i = 0; i < CORPUS_SIZE / 10; i++) {
+            String cardNumber = randomCardNumber(random);
+            assertThat(CardValidator.cleanCardNumber(cardNumber))
+                    .isEqualTo(LegacyCardValidator.cleanCardNumber(cardNumber));
+        }
+    }
+
+    private static String randomCardNumber(Random random) {
+        String prefix = CORPUS_PREFIXES[random.nextInt(CORPUS_PREFIXES.length)];
+        int length = 10 + random.nextInt(12);
+        String digits = randomDigits(random, prefix, length);
+        if (random.nextBoolean()) {
+            digits = withLuhnCheckDigit(digits);
+        }
+        return withNoise(random, digits);
+    }
+
+    private static String randomDigits(Random random, String prefix, int length) {
+        StringBuilder builder = new StringBuilder(prefix);
+        while (builder.length() < length) {
+            builder.append((char) ('0' + random.nextInt(10)));
+        }
+        return builder.toString();
+    }
+
+    private static String withLuhnCheckDigit(String digits) {
+        if (digits.isEmpty()) {
+            return digits;
+        }
+        String payload = digits.substring(0, digits.length() - 1);
+        int sum = 0;
+        boolean alternate = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int n = payload.charAt(i) - '0';
+            if (alternate) {
+                n *= 2;
+                if (n > 9) {
+                    n -= 9;
+                }
+            }
+            sum += n;
+            alternate = !alternate;
+        }
+        return payload + (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private static String withNoise(Random random, String value) {
+        StringBuilder builder = new StringBuilder(value);
+        int noise = random.nextInt(8);
+        if (noise == 0) {
+            builder.insert(random.nextInt(builder.length() + 1), ' ');
+        } else if (noise == 1) {
+            builder.insert(random.nextInt(builder.length() + 1), "\t\n");
+        } else if (noise == 2) {
+            builder.insert(random.nextInt(builder.length() + 1), (char) ('A' + random.nextInt(26)));
+        } else if (noise == 3) {
+            builder.insert(random.nextInt(builder.length() + 1), '-');
+        }
+        return builder.toString();
+    }
 }
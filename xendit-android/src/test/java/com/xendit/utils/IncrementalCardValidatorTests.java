@@ -0,0 +1,126 @@
+package com.xendit.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class IncrementalCardValidatorTests {
+
+    @Test
+    public void append_shouldReportIncompleteUntilValid() {
+        IncrementalCardValidator validator = new IncrementalCardValidator();
+        String cardNumber = "4012111111111111";
+
+        for (int i = 0; i < cardNumber.length() - 1; i++) {
+            validator.append(cardNumber.charAt(i));
+            assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INCOMPLETE);
+            assertThat(validator.getCardType()).isEqualTo(CardValidator.CardType.VISA);
+        }
+        validator.append(cardNumber.charAt(cardNumber.length() - 1));
+
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.VALID);
+        assertThat(validator.isValid()).isTrue();
+        assertThat(validator.getLength()).isEqualTo(16);
+    }
+
+    @Test
+    public void append_shouldIgnoreWhitespace() {
+        IncrementalCardValidator validator = new IncrementalCardValidator();
+        validator.setCardNumber("4111 1111 1111 1111");
+
+        assertThat(validator.getLength()).isEqualTo(16);
+        assertThat(validator.isValid()).isTrue();
+    }
+
+    @Test
+    public void getState_shouldBeInvalidForNonDigits() {
+        IncrementalCardValidator validator = new IncrementalCardValidator();
+        validator.setCardNumber("4111x");
+
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INVALID);
+
+        validator.deleteLast();
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INCOMPLETE);
+    }
+
+    @Test
+    public void getState_shouldBeInvalidForUnknownPrefix() {
+        IncrementalCardValidator validator = new IncrementalCardValidator();
+        validator.append('3');
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INCOMPLETE);
+
+        validator.append('0');
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INVALID);
+
+        validator.replace(1, '4');
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INCOMPLETE);
+        assertThat(validator.getCardType()).isEqualTo(CardValidator.CardType.AMEX);
+    }
+
+    @Test
+    public void getState_shouldBeInvalidAtMaxLengthWithoutLuhn() {
+        IncrementalCardValidator validator = new IncrementalCardValidator();
+        validator.setCardNumber("4556564166261021534");
+
+        assertThat(validator.isAtMaxLength()).isTrue();
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.INVALID);
+
+        validator.replace(18, '3');
+        assertThat(validator.getState()).isEqualTo(IncrementalCardValidator.State.VALID);
+    }
+
+    @Test
+    public void edits_shouldMatchCardValidatorOnRandomEditSequences() {
+        Random random = new Random(20171027L);
+        String alphabet = "0123456789012345678901234567890123456789 x";
+
+        for (int run = 0; run < 2000; run++) {
+            IncrementalCardValidator validator = new IncrementalCardValidator();
+            StringBuilder expected = new StringBuilder();
+
+            for (int edit = 0; edit < 40; edit++) {
+                char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                int operation = random.nextInt(10);
+
+                if (operation < 5 || expected.length() == 0) {
+                    validator.append(c);
+                    if (c != ' ') {
+                        expected.append(c);
+                    }
+                } else if (operation == 5) {
+                    validator.deleteLast();
+                    expected.setLength(expected.length() - 1);
+                } else if (operation == 6) {
+                    int index = random.nextInt(expected.length());
+                    validator.delete(index);
+                    expected.deleteCharAt(index);
+                } else if (operation == 7) {
+                    int index = random.nextInt(expected.length() + 1);
+                    validator.insert(index, c);
+                    if (c != ' ') {
+                        expected.insert(index, c);
+                    }
+                } else {
+                    int index = random.nextInt(expected.length());
+                    validator.replace(index, c);
+                    if (c != ' ') {
+                        expected.setCharAt(index, c);
+                    } else {
+                        expected.deleteCharAt(index);
+                    }
+                }
+
+                String cardNumber = expected.toString();
+                assertThat(validator.getLength()).isEqualTo(cardNumber.length());
+                assertThat(validator.isValid())
+                        .named(cardNumber)
+                        .isEqualTo(CardValidator.isCardNumberValid(cardNumber));
+                assertThat(validator.getCardType())
+                        .named(cardNumber)
+                        .isEqualTo(CardValidator.getCardType(cardNumber));
+            }
+        }
+    }
+}